@@ -15,6 +15,7 @@
 package com.google.sps.data;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -26,7 +27,7 @@ public class Comment {
     public static class Builder {
         private String author; 
         private int rate;
-        private ArrayList<String> likedOptions;
+        private List<String> likedOptions = Collections.emptyList();
         private String text;
         private final long timestamp;
 
@@ -41,8 +42,13 @@ public class Comment {
             this.rate = newRate;
             return this;
         }
-        public Builder likedTheseOptions(ArrayList<String> newLikedOptions) {
-            this.likedOptions = new ArrayList<String>(newLikedOptions);
+        public Builder likedTheseOptions(List<String> newLikedOptions) {
+            this.likedOptions = Collections.unmodifiableList(new ArrayList<String>(newLikedOptions));
+            return this;
+        }
+        // Uses an already immutable list as is, without copying it.
+        public Builder likedSharedOptions(List<String> sharedLikedOptions) {
+            this.likedOptions = sharedLikedOptions;
             return this;
         }
         public Builder textWritten(String newText) {
@@ -60,15 +66,35 @@ public class Comment {
     // The 1-5 rate users can give.
     private int rate;
     // The options marked as 'liked' by the user.
-    private ArrayList<String> likedOptions;
+    private List<String> likedOptions;
     private String text;
     // Timestamp to enable sorting the comments
     private final long timestamp;
     private Comment(Builder builder) {
         this.author = builder.author;
         this.rate = builder.rate;
-        this.likedOptions = new ArrayList<String>(builder.likedOptions);
+        this.likedOptions = builder.likedOptions;
         this.text = builder.text;
         this.timestamp = builder.timestamp;
     }
-}
\ No newline at end of file
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public List<String> getLikedOptions() {
+        return likedOptions;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,204 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Text;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Converts between Comment entities stored in the datastore and Comment objects.
+ * <p>A stored comment has an unindexed author and text and the liked options packed into a single
+ * unindexed "liked" bitmask, which is what comments are decoded from. The timestamp the feed sorts on,
+ * the rate and the multi-valued "likedItems" (the names of the liked items) are indexed so the feed can
+ * be filtered on them, using the composite indexes declared in datastore-indexes.xml. So are the
+ * multi-valued "tokens" searches filter on, the CommentSearchIndex search tokens of the author and text.
+ */
+public final class CommentCodec {
+    public static final String KIND = "Comment";
+
+    // The items a user can like, in bit order of the "liked" bitmask.
+    public static final String[] LIKED_ITEMS = {"info", "facts", "gallery", "other"};
+    // The label displayed for each liked item, in the same order as LIKED_ITEMS.
+    private static final String[] LIKED_LABELS = {"The info", "The facts", "The gallery", "Other"};
+
+    // One immutable list of labels for every possible bitmask, shared by all decoded comments.
+    private static final List<List<String>> LABELS_BY_MASK = buildLabelsByMask();
+
+    private CommentCodec() {}
+
+    // Returns the bit representing the given item in the "liked" bitmask, or 0 for an unknown item.
+    public static int likedBit(String item) {
+        for (int i = 0; i < LIKED_ITEMS.length; i++) {
+            if (LIKED_ITEMS[i].equals(item)) {
+                return 1 << i;
+            }
+        }
+        return 0;
+    }
+
+    // Returns the labels of the liked items in the bitmask, as a shared immutable list.
+    public static List<String> likedLabels(int likedMask) {
+        return LABELS_BY_MASK.get(likedMask);
+    }
+
+    // Returns the "liked" bitmask of the items the comment liked.
+    public static int likedMask(Comment comment) {
+        int likedMask = 0;
+        for (int i = 0; i < LIKED_LABELS.length; i++) {
+            if (comment.getLikedOptions().contains(LIKED_LABELS[i])) {
+                likedMask |= 1 << i;
+            }
+        }
+        return likedMask;
+    }
+
+    // Returns true if the comment liked the given item.
+    public static boolean isLiked(Comment comment, String item) {
+        return (likedMask(comment) & likedBit(item)) != 0;
+    }
+
+    // Returns the names of the liked items in the bitmask, in the order of LIKED_ITEMS.
+    public static List<String> likedItems(int likedMask) {
+        List<String> likedItems = new ArrayList<>();
+        for (int i = 0; i < LIKED_ITEMS.length; i++) {
+            if ((likedMask & (1 << i)) != 0) {
+                likedItems.add(LIKED_ITEMS[i]);
+            }
+        }
+        return likedItems;
+    }
+
+    // Returns a positive id derived from all the fields of the comment, which imported comments are stored under,
+    // so importing the same comment again finds it instead of adding a copy. It fits in the 53 bits datastore
+    // ids use.
+    public static long importId(Comment comment) {
+        String author = String.valueOf(comment.getAuthor());
+        String fields = comment.getTimestamp() + "\n" + comment.getRate() + "\n" + likedMask(comment) + "\n"
+            + author.length() + "\n" + author + String.valueOf(comment.getText());
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fields.getBytes(StandardCharsets.UTF_8));
+            long id = ByteBuffer.wrap(digest).getLong() & ((1L << 53) - 1);
+            return id == 0 ? 1 : id;
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Creates a new Comment entity in the compact format.
+    public static Entity toEntity(Comment comment) {
+        Entity entity = new Entity(KIND);
+        setProperties(entity, comment.getAuthor(), comment.getRate(), likedMask(comment), comment.getText(), comment.getTimestamp());
+        return entity;
+    }
+
+    // Creates a Comment entity with the given key in the compact format.
+    public static Entity toEntity(Key key, Comment comment) {
+        Entity entity = new Entity(key);
+        setProperties(entity, comment.getAuthor(), comment.getRate(), likedMask(comment), comment.getText(), comment.getTimestamp());
+        return entity;
+    }
+
+    // Decodes a Comment entity, in either the compact or the legacy format.
+    public static Comment fromEntity(Entity entity) {
+        int likedMask = likedMask(entity);
+        return new Comment.Builder((long) entity.getProperty("timestamp"))
+            .byAuthor((String) entity.getProperty("author"))
+            .rated((int) (long) entity.getProperty("rate"))
+            .likedSharedOptions(likedLabels(likedMask))
+            .textWritten(getText(entity))
+            .build();
+    }
+
+    // Returns true if the entity is still in the legacy format, which stores the liked options as "true"/"false"
+    // strings and has neither the indexed liked items nor the search tokens.
+    public static boolean needsMigration(Entity entity) {
+        return !entity.hasProperty("liked");
+    }
+
+    // Rewrites an entity in place to the current format, keeping its key.
+    public static void migrate(Entity entity) {
+        int likedMask = likedMask(entity);
+        String author = (String) entity.getProperty("author");
+        int rate = (int) (long) entity.getProperty("rate");
+        String text = getText(entity);
+        long timestamp = (long) entity.getProperty("timestamp");
+        for (String item : LIKED_ITEMS) {
+            entity.removeProperty("is_" + item + "_liked");
+        }
+        setProperties(entity, author, rate, likedMask, text, timestamp);
+    }
+
+    private static void setProperties(Entity entity, String author, int rate, int likedMask, String text, long timestamp) {
+        entity.setUnindexedProperty("author", author);
+        entity.setProperty("rate", rate);
+        entity.setUnindexedProperty("liked", likedMask);
+        List<String> likedItems = likedItems(likedMask);
+        if (!likedItems.isEmpty()) {
+            entity.setProperty("likedItems", likedItems);
+        }
+        entity.setUnindexedProperty("text", new Text(text));
+        entity.setProperty("timestamp", timestamp);
+        entity.setProperty("tokens", CommentSearchIndex.searchTokens(author, text));
+    }
+
+    private static int likedMask(Entity entity) {
+        if (entity.hasProperty("liked")) {
+            return (int) (long) entity.getProperty("liked");
+        }
+        return legacyLikedMask(entity);
+    }
+
+    private static int legacyLikedMask(Entity entity) {
+        int likedMask = 0;
+        for (int i = 0; i < LIKED_ITEMS.length; i++) {
+            if ("true".equals(entity.getProperty("is_" + LIKED_ITEMS[i] + "_liked"))) {
+                likedMask |= 1 << i;
+            }
+        }
+        return likedMask;
+    }
+
+    // The text is a Text in the compact format and a String in the legacy one.
+    private static String getText(Entity entity) {
+        Object text = entity.getProperty("text");
+        if (text instanceof Text) {
+            return ((Text) text).getValue();
+        }
+        return text == null ? "" : (String) text;
+    }
+
+    private static List<List<String>> buildLabelsByMask() {
+        List<List<String>> labelsByMask = new ArrayList<>();
+        for (int mask = 0; mask < (1 << LIKED_ITEMS.length); mask++) {
+            List<String> labels = new ArrayList<>();
+            for (int i = 0; i < LIKED_LABELS.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    labels.add(LIKED_LABELS[i]);
+                }
+            }
+            labelsByMask.add(Collections.unmodifiableList(labels));
+        }
+        return labelsByMask;
+    }
+}
@@ -0,0 +1,49 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.Map;
+
+/** Summary of the comments posted during one period: how many, the sum of their rates and the likes of each item. */
+public final class CommentRollup {
+    private final long start;
+    private final long count;
+    private final long rateSum;
+    // The number of likes of each item, in the order of CommentCodec.LIKED_ITEMS.
+    private final Map<String, Long> likes;
+
+    public CommentRollup(long start, long count, long rateSum, Map<String, Long> likes) {
+        this.start = start;
+        this.count = count;
+        this.rateSum = rateSum;
+        this.likes = likes;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getRateSum() {
+        return rateSum;
+    }
+
+    public Map<String, Long> getLikes() {
+        return likes;
+    }
+}
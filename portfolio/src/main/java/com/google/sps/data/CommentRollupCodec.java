@@ -0,0 +1,110 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts between CommentRollup entities and CommentRollup objects. Each rollup is split into
+ * {@link #SHARD_COUNT} entities named after its period, start and shard, so a range of periods is read with a
+ * single batch get of known keys instead of a query, and comments written at the same time rarely update the same
+ * entity. The counters are unindexed and updated whenever comments are written.
+ */
+public final class CommentRollupCodec {
+    public static final String KIND = "CommentRollup";
+    public static final int SHARD_COUNT = 10;
+
+    private CommentRollupCodec() {}
+
+    // Returns the keys of all shards of the rollup, which are summed to read it.
+    public static List<Key> keys(RollupPeriod period, long start) {
+        List<Key> keys = new ArrayList<>(SHARD_COUNT);
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            keys.add(shardKey(period, start, shard));
+        }
+        return keys;
+    }
+
+    // Returns the keys of the given shard of the rollups the comment is counted in, one per period.
+    public static List<Key> keysOf(Comment comment, int shard) {
+        List<Key> keys = new ArrayList<>();
+        for (RollupPeriod period : RollupPeriod.values()) {
+            keys.add(shardKey(period, period.startOf(comment.getTimestamp()), shard));
+        }
+        return keys;
+    }
+
+    private static Key shardKey(RollupPeriod period, long start, int shard) {
+        return KeyFactory.createKey(KIND, period.name() + "_" + start + "_" + shard);
+    }
+
+    // Returns an entity for the rollup with the given key, with all counters set to 0.
+    public static Entity newEntity(Key key) {
+        Entity entity = new Entity(key);
+        entity.setUnindexedProperty("count", 0L);
+        entity.setUnindexedProperty("rateSum", 0L);
+        for (String item : CommentCodec.LIKED_ITEMS) {
+            entity.setUnindexedProperty(likesPropertyName(item), 0L);
+        }
+        return entity;
+    }
+
+    // Adds the comment to the rollup entity.
+    public static void add(Entity entity, Comment comment) {
+        increment(entity, "count", 1);
+        increment(entity, "rateSum", comment.getRate());
+        for (String item : CommentCodec.LIKED_ITEMS) {
+            if (CommentCodec.isLiked(comment, item)) {
+                increment(entity, likesPropertyName(item), 1);
+            }
+        }
+    }
+
+    // Decodes the shards of a rollup, of which there may be none.
+    public static CommentRollup fromEntities(Iterable<Entity> shards, long start) {
+        Map<String, Long> likes = new LinkedHashMap<>();
+        for (String item : CommentCodec.LIKED_ITEMS) {
+            likes.put(item, getCount(shards, likesPropertyName(item)));
+        }
+        return new CommentRollup(start, getCount(shards, "count"), getCount(shards, "rateSum"), likes);
+    }
+
+    private static void increment(Entity entity, String propertyName, long delta) {
+        entity.setUnindexedProperty(propertyName, getCount(entity, propertyName) + delta);
+    }
+
+    private static long getCount(Iterable<Entity> shards, String propertyName) {
+        long total = 0;
+        for (Entity shard : shards) {
+            total += getCount(shard, propertyName);
+        }
+        return total;
+    }
+
+    private static long getCount(Entity entity, String propertyName) {
+        Object count = entity.getProperty(propertyName);
+        return count == null ? 0L : (long) count;
+    }
+
+    private static String likesPropertyName(String item) {
+        return "likes_" + item;
+    }
+}
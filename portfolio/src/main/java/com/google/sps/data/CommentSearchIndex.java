@@ -0,0 +1,240 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over the text and author of the comments, kept in memory by the repositories that keep the
+ * comments in memory and updated as comments are added. Comments are identified by their id, so adding the same
+ * comment twice is harmless.
+ * <p>The datastore repository instead stores the search tokens of each comment on its entity and queries them.
+ * The tokens are the words and, to turn prefix queries into equality filters, the prefixes of the words up to
+ * MAX_PREFIX_LENGTH characters followed by '*'. Words longer than the MAX_TOKEN_BYTES the datastore indexes are
+ * cut to that length, in the tokens and in the queries alike.
+ */
+public final class CommentSearchIndex {
+    public static final int MAX_PREFIX_LENGTH = 6;
+    // The most UTF-8 bytes of an indexed string property value.
+    public static final int MAX_TOKEN_BYTES = 1500;
+    // The most tokens stored with a comment, which keeps its index entries well below the datastore's limit.
+    private static final int MAX_TOKENS = 2000;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Comment> comments = new HashMap<>();
+    // Maps every term to the ids of the comments containing it. Sorted to enable prefix queries.
+    private final TreeMap<String, Set<Long>> postings = new TreeMap<>();
+
+    public void add(long id, Comment comment) {
+        lock.writeLock().lock();
+        try {
+            if (comments.put(id, comment) != null) {
+                return;
+            }
+            for (String term : words(comment.getAuthor(), comment.getText())) {
+                postings.computeIfAbsent(term, key -> new HashSet<>()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            comments.clear();
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Returns up to limit of the most recent comments matching every term of the query, newest first. */
+    public List<Comment> search(String query, int limit) {
+        List<String> terms = parseQuery(query);
+        List<Comment> matches = new ArrayList<>();
+        if (terms.isEmpty() || limit <= 0) {
+            return matches;
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<Long> matchingIds = null;
+            for (String term : terms) {
+                Set<Long> termIds = findIds(term);
+                if (matchingIds == null) {
+                    matchingIds = termIds;
+                } else {
+                    matchingIds.retainAll(termIds);
+                }
+                if (matchingIds.isEmpty()) {
+                    return matches;
+                }
+            }
+            for (long id : matchingIds) {
+                matches.add(comments.get(id));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort((first, second) -> Long.compare(second.getTimestamp(), first.getTimestamp()));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Returns the distinct terms of a search query, in lower case. A term ending with '*' matches every word
+     * starting with it.
+     */
+    public static List<String> parseQuery(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String term : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}*]+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    // Returns true if the author or text of the comment contain every term.
+    public static boolean matches(Comment comment, List<String> terms) {
+        Set<String> words = words(comment.getAuthor(), comment.getText());
+        for (String term : terms) {
+            if (!matches(words, term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns the tokens stored with a comment with the given author and text: its words, then their prefixes.
+    public static List<String> searchTokens(String author, String text) {
+        Set<String> words = words(author, text);
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String word : words) {
+            addToken(tokens, truncate(word));
+        }
+        for (String word : words) {
+            for (int length = 1; length <= Math.min(word.length(), MAX_PREFIX_LENGTH); length++) {
+                addToken(tokens, word.substring(0, length) + "*");
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Returns the token matching the comments a query term matches, or null if the term matches none. A prefix
+     * longer than MAX_PREFIX_LENGTH and a word longer than MAX_TOKEN_BYTES are cut, so their tokens also match
+     * comments the term doesn't match.
+     */
+    public static String queryToken(String term) {
+        if (!term.endsWith("*")) {
+            return truncate(term);
+        }
+        String prefix = term.substring(0, term.length() - 1);
+        if (prefix.isEmpty() || prefix.contains("*")) {
+            return null;
+        }
+        return prefix.substring(0, Math.min(prefix.length(), MAX_PREFIX_LENGTH)) + "*";
+    }
+
+    // Returns the longest start of the word that is at most MAX_TOKEN_BYTES long in UTF-8, whole code points only.
+    static String truncate(String word) {
+        // No character takes more than 3 bytes, as surrogate pairs take 4 bytes for 2 characters.
+        if (word.length() * 3 <= MAX_TOKEN_BYTES) {
+            return word;
+        }
+        int bytes = 0;
+        for (int i = 0; i < word.length(); ) {
+            int codePoint = word.codePointAt(i);
+            bytes += codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (bytes > MAX_TOKEN_BYTES) {
+                return word.substring(0, i);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return word;
+    }
+
+    private static void addToken(Set<String> tokens, String token) {
+        if (tokens.size() < MAX_TOKENS) {
+            tokens.add(token);
+        }
+    }
+
+    private static boolean matches(Set<String> words, String term) {
+        if (!term.endsWith("*")) {
+            return words.contains(term);
+        }
+        String prefix = term.substring(0, term.length() - 1);
+        if (prefix.isEmpty()) {
+            return false;
+        }
+        for (String word : words) {
+            if (word.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Returns a new set of the ids of the comments containing the term, or a word it prefixes if it ends with '*'.
+    private Set<Long> findIds(String term) {
+        Set<Long> ids = new HashSet<>();
+        if (term.endsWith("*")) {
+            String prefix = term.substring(0, term.length() - 1);
+            if (prefix.isEmpty()) {
+                return ids;
+            }
+            SortedMap<String, Set<Long>> prefixed = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+            for (Collection<Long> termIds : prefixed.values()) {
+                ids.addAll(termIds);
+            }
+        } else {
+            Set<Long> termIds = postings.get(term);
+            if (termIds != null) {
+                ids.addAll(termIds);
+            }
+        }
+        return ids;
+    }
+
+    // Returns the lower case words of letters and digits of the texts, in order.
+    private static Set<String> words(String... texts) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+}
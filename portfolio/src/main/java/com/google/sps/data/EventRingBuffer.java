@@ -0,0 +1,83 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Fixed-size ring of the most recently published events, shared by all readers without locking.
+ * <p>Every event gets the next sequence number, starting at 1. Each reader keeps the sequence number of the
+ * last event it read, so one published event is fanned out to any number of readers. Readers that fall behind
+ * by more than the capacity of the ring skip the events that were overwritten.
+ */
+public final class EventRingBuffer {
+    private final AtomicReferenceArray<Event> slots;
+    private final AtomicLong lastSequence = new AtomicLong();
+
+    public EventRingBuffer(int capacity) {
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    // Adds an event, overwriting the oldest one if the ring is full, and returns its sequence number.
+    public long publish(String data) {
+        long sequence = lastSequence.incrementAndGet();
+        slots.set(slotIndex(sequence), new Event(sequence, data));
+        return sequence;
+    }
+
+    // Returns the sequence number of the last published event, or 0 if none was published.
+    public long getLastSequence() {
+        return lastSequence.get();
+    }
+
+    /**
+     * Passes the data and sequence number of the events published after afterSequence to reader, oldest first,
+     * and returns the sequence number of the last event read, or afterSequence if there was none.
+     */
+    public long readAfter(long afterSequence, ObjLongConsumer<String> reader) {
+        long last = lastSequence.get();
+        long sequence = Math.max(afterSequence + 1, last - slots.length() + 1);
+        long read = afterSequence;
+        for (; sequence <= last; sequence++) {
+            Event event = slots.get(slotIndex(sequence));
+            if (event == null || event.sequence < sequence) {
+                // The event was numbered but is still being written - its publisher will notify the readers.
+                break;
+            }
+            if (event.sequence == sequence) {
+                reader.accept(event.data, sequence);
+            }
+            // Otherwise the event was already overwritten by a newer one and is skipped.
+            read = sequence;
+        }
+        return read;
+    }
+
+    private int slotIndex(long sequence) {
+        return (int) (sequence % slots.length());
+    }
+
+    private static final class Event {
+        private final long sequence;
+        private final String data;
+
+        private Event(long sequence, String data) {
+            this.sequence = sequence;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-user token bucket, limiting how often each user can perform an action while allowing short bursts.
+ * <p>Users are hashed into a fixed number of stripes, each holding a single atomic "theoretical arrival time"
+ * updated with compare-and-set (the generic cell rate algorithm), so checking the limit never locks and the
+ * memory used does not grow with the number of users. Users sharing a stripe share a bucket, which only makes
+ * the limit stricter for them.
+ */
+public final class RateLimiter {
+    private static final int STRIPES = 4096;
+
+    // The time in nanoseconds at which each stripe's bucket will be full again.
+    private final AtomicLongArray fullAt = new AtomicLongArray(STRIPES);
+    // The time it takes to earn one token.
+    private final long nanosPerToken;
+    // How far fullAt may be ahead of now, which is what makes bursts of up to burstSize actions possible.
+    private final long burstNanos;
+
+    public RateLimiter(int burstSize, long refillPeriod, TimeUnit unit) {
+        this.nanosPerToken = unit.toNanos(refillPeriod);
+        this.burstNanos = nanosPerToken * burstSize;
+    }
+
+    /**
+     * Takes a token from the user's bucket. Returns 0 if the user may perform the action, or the number of
+     * milliseconds until a token will be available otherwise.
+     */
+    public long tryAcquire(String userId) {
+        int stripe = (userId.hashCode() & Integer.MAX_VALUE) % STRIPES;
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get(stripe);
+            // A bucket that was full for a while does not save up more than burstSize tokens.
+            long base = current - now < 0 ? now : current;
+            long next = base + nanosPerToken;
+            if (next - now > burstNanos) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(next - now - burstNanos));
+            }
+            if (fullAt.compareAndSet(stripe, current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The number of comments given each rate, kept in {@link #SHARD_COUNT} entities so reading it never scans the
+ * comments. Each write adds to a random shard, so concurrent writes rarely update the same entity, and the
+ * histogram is the sum of all shards.
+ */
+public final class RatingHistogram {
+    public static final String KIND = "RatingHistogram";
+    public static final int MIN_RATE = 1;
+    public static final int MAX_RATE = 5;
+    public static final int SHARD_COUNT = 20;
+
+    private RatingHistogram() {}
+
+    // Returns the keys of all shards, which are summed to read the histogram.
+    public static List<Key> keys() {
+        List<Key> keys = new ArrayList<>(SHARD_COUNT);
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            keys.add(shardKey(shard));
+        }
+        return keys;
+    }
+
+    // Returns the key of the given shard, between 0 and SHARD_COUNT - 1.
+    public static Key shardKey(int shard) {
+        return KeyFactory.createKey(KIND, "comments-" + shard);
+    }
+
+    // Returns an entity for the shard with the given key, with all counters set to 0.
+    public static Entity newEntity(Key key) {
+        Entity entity = new Entity(key);
+        for (int rate = MIN_RATE; rate <= MAX_RATE; rate++) {
+            entity.setUnindexedProperty(propertyName(rate), 0L);
+        }
+        return entity;
+    }
+
+    // Adds one comment with the given rate to the shard entity.
+    public static void increment(Entity entity, int rate) {
+        String propertyName = propertyName(rate);
+        Object count = entity.getProperty(propertyName);
+        entity.setUnindexedProperty(propertyName, count == null ? 1L : (long) count + 1);
+    }
+
+    // Returns the number of comments given each rate in all the shard entities, ordered by rate.
+    public static Map<Integer, Long> toMap(Iterable<Entity> shards) {
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        for (int rate = MIN_RATE; rate <= MAX_RATE; rate++) {
+            long total = 0;
+            for (Entity shard : shards) {
+                Object count = shard.getProperty(propertyName(rate));
+                total += count == null ? 0L : (long) count;
+            }
+            counts.put(rate, total);
+        }
+        return counts;
+    }
+
+    private static String propertyName(int rate) {
+        return "rate_" + rate;
+    }
+}
@@ -0,0 +1,86 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.data.Comment;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Converts a Comment to and from JSON, with the same fields as reflection would use. */
+final class CommentTypeAdapter extends TypeAdapter<Comment> {
+
+  @Override
+  public void write(JsonWriter out, Comment comment) throws IOException {
+    out.beginObject();
+    out.name("author").value(comment.getAuthor());
+    out.name("rate").value(comment.getRate());
+    out.name("likedOptions").beginArray();
+    for (String likedOption : comment.getLikedOptions()) {
+      out.value(likedOption);
+    }
+    out.endArray();
+    out.name("text").value(comment.getText());
+    out.name("timestamp").value(comment.getTimestamp());
+    out.endObject();
+  }
+
+  @Override
+  public Comment read(JsonReader in) throws IOException {
+    String author = null;
+    int rate = 0;
+    List<String> likedOptions = new ArrayList<>();
+    String text = null;
+    long timestamp = 0;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "author":
+          author = in.nextString();
+          break;
+        case "rate":
+          rate = in.nextInt();
+          break;
+        case "likedOptions":
+          in.beginArray();
+          while (in.hasNext()) {
+            likedOptions.add(in.nextString());
+          }
+          in.endArray();
+          break;
+        case "text":
+          text = in.nextString();
+          break;
+        case "timestamp":
+          timestamp = in.nextLong();
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new Comment.Builder(timestamp)
+        .byAuthor(author)
+        .rated(rate)
+        .likedTheseOptions(likedOptions)
+        .textWritten(text)
+        .build();
+  }
+}
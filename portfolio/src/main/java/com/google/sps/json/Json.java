@@ -0,0 +1,60 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.sps.data.Comment;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The Gson instance shared by all servlets. Gson is thread-safe, and creating it once avoids rebuilding its
+ * adapters on every request. The data classes are serialized by hand-written type adapters instead of reflection.
+ */
+public final class Json {
+  public static final Gson GSON = new GsonBuilder()
+      .registerTypeAdapter(Comment.class, new CommentTypeAdapter().nullSafe())
+      .create();
+
+  private Json() {}
+
+  /** Writes the value as the JSON response, streaming it to the client without building a String first. */
+  public static void write(HttpServletResponse response, Object value) throws IOException {
+    response.setContentType("application/json;charset=UTF-8");
+    Writer writer = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+    GSON.toJson(value, writer);
+    writer.write('\n');
+    writer.flush();
+  }
+
+  /** Returns the value as JSON encoded in UTF-8, followed by a newline. */
+  public static byte[] toBytes(Object value) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+      GSON.toJson(value, writer);
+      writer.write('\n');
+    } catch (IOException e) {
+      // Writing to memory never fails.
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,103 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.metrics;
+
+import com.google.apphosting.api.ApiProxy;
+import com.google.apphosting.api.ApiProxy.ApiConfig;
+import com.google.apphosting.api.ApiProxy.ApiProxyException;
+import com.google.apphosting.api.ApiProxy.Delegate;
+import com.google.apphosting.api.ApiProxy.Environment;
+import com.google.apphosting.api.ApiProxy.LogRecord;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the datastore calls made by the thread handling a request. Every App Engine API call goes through the
+ * ApiProxy delegate, so install() wraps it with one that counts the calls to the datastore service, whether they
+ * come from the synchronous or the asynchronous datastore.
+ */
+public final class DatastoreCallCounter {
+
+    private static final String DATASTORE_PACKAGE = "datastore_v3";
+    // The number of calls made by the current request, or null outside of requests.
+    private static final ThreadLocal<long[]> calls = new ThreadLocal<>();
+
+    private DatastoreCallCounter() {}
+
+    // Starts counting the calls through the ApiProxy. Does nothing outside of App Engine, where there is no ApiProxy.
+    @SuppressWarnings("unchecked")
+    public static synchronized void install() {
+        Delegate<Environment> delegate = ApiProxy.getDelegate();
+        if (delegate != null && !(delegate instanceof CountingDelegate)) {
+            ApiProxy.setDelegate(new CountingDelegate(delegate));
+        }
+    }
+
+    // Starts counting the calls made by the current thread from 0.
+    public static void start() {
+        calls.set(new long[1]);
+    }
+
+    // Stops counting the calls made by the current thread and returns how many there were.
+    public static long stop() {
+        long[] count = calls.get();
+        calls.remove();
+        return count == null ? 0 : count[0];
+    }
+
+    private static void countCall(String packageName) {
+        long[] count = calls.get();
+        if (count != null && DATASTORE_PACKAGE.equals(packageName)) {
+            count[0]++;
+        }
+    }
+
+    private static final class CountingDelegate implements Delegate<Environment> {
+        private final Delegate<Environment> delegate;
+
+        private CountingDelegate(Delegate<Environment> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public byte[] makeSyncCall(Environment environment, String packageName, String methodName, byte[] request)
+            throws ApiProxyException {
+            countCall(packageName);
+            return delegate.makeSyncCall(environment, packageName, methodName, request);
+        }
+
+        @Override
+        public Future<byte[]> makeAsyncCall(
+            Environment environment, String packageName, String methodName, byte[] request, ApiConfig apiConfig) {
+            countCall(packageName);
+            return delegate.makeAsyncCall(environment, packageName, methodName, request, apiConfig);
+        }
+
+        @Override
+        public void log(Environment environment, LogRecord record) {
+            delegate.log(environment, record);
+        }
+
+        @Override
+        public void flushLogs(Environment environment) {
+            delegate.flushLogs(environment);
+        }
+
+        @Override
+        public List<Thread> getRequestThreads(Environment environment) {
+            return delegate.getRequestThreads(environment);
+        }
+    }
+}
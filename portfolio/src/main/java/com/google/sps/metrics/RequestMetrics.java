@@ -0,0 +1,87 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.metrics;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/** The metrics of the requests handled by this instance, by route, and their Prometheus text format. */
+public final class RequestMetrics {
+    private static final RequestMetrics INSTANCE = new RequestMetrics();
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final ConcurrentHashMap<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+    private RequestMetrics() {}
+
+    public static RequestMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    public RouteMetrics forRoute(String route) {
+        return routes.computeIfAbsent(route, key -> new RouteMetrics());
+    }
+
+    // Writes all the metrics in the Prometheus text exposition format, with the routes in alphabetical order.
+    public void writePrometheus(PrintWriter out) {
+        Map<String, RouteMetrics> sortedRoutes = new TreeMap<>(routes);
+        writeSummary(out, sortedRoutes, "portfolio_request_duration_seconds", "Time taken to handle the requests.",
+            RouteMetrics::getLatencyMicros, 1e6);
+        writeSummary(out, sortedRoutes, "portfolio_request_datastore_calls", "Datastore calls made per request.",
+            RouteMetrics::getDatastoreCalls, 1);
+        writeSummary(out, sortedRoutes, "portfolio_response_size_bytes", "Size of the response bodies.",
+            RouteMetrics::getResponseBytes, 1);
+
+        out.println("# HELP portfolio_server_errors_total Requests answered with a 5xx status.");
+        out.println("# TYPE portfolio_server_errors_total counter");
+        for (Map.Entry<String, RouteMetrics> route : sortedRoutes.entrySet()) {
+            out.println("portfolio_server_errors_total" + labels(route.getKey()) + " " + route.getValue().getServerErrors());
+        }
+    }
+
+    // Writes a histogram as a summary, with its values divided by unit.
+    private static void writeSummary(PrintWriter out, Map<String, RouteMetrics> routes, String name, String help,
+        Function<RouteMetrics, Histogram> histogramOf, double unit) {
+        out.println("# HELP " + name + " " + help);
+        out.println("# TYPE " + name + " summary");
+        for (Map.Entry<String, RouteMetrics> route : routes.entrySet()) {
+            Histogram histogram = histogramOf.apply(route.getValue());
+            String routeLabel = "route=\"" + escape(route.getKey()) + "\"";
+            for (double quantile : QUANTILES) {
+                out.println(name + "{" + routeLabel + ",quantile=\"" + quantile + "\"} "
+                    + format(histogram.getValueAtQuantile(quantile) / unit));
+            }
+            out.println(name + "_sum{" + routeLabel + "} " + format(histogram.getSum() / unit));
+            out.println(name + "_count{" + routeLabel + "} " + histogram.getCount());
+        }
+    }
+
+    private static String labels(String route) {
+        return "{route=\"" + escape(route) + "\"}";
+    }
+
+    // Escapes a label value as the text format requires.
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    // Writes whole numbers without a fraction.
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+}
@@ -0,0 +1,50 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** The metrics of the requests to one route. */
+public final class RouteMetrics {
+    private final Histogram latencyMicros = new Histogram();
+    private final Histogram datastoreCalls = new Histogram();
+    private final Histogram responseBytes = new Histogram();
+    private final LongAdder serverErrors = new LongAdder();
+
+    public void record(long latencyMicros, long datastoreCalls, long responseBytes, int status) {
+        this.latencyMicros.record(latencyMicros);
+        this.datastoreCalls.record(datastoreCalls);
+        this.responseBytes.record(responseBytes);
+        if (status >= 500) {
+            serverErrors.increment();
+        }
+    }
+
+    public Histogram getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    public Histogram getDatastoreCalls() {
+        return datastoreCalls;
+    }
+
+    public Histogram getResponseBytes() {
+        return responseBytes;
+    }
+
+    public long getServerErrors() {
+        return serverErrors.sum();
+    }
+}
@@ -0,0 +1,88 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.moderation;
+
+import com.google.sps.data.Comment;
+import com.google.sps.data.CommentCodec;
+import com.google.sps.storage.Futures;
+import com.google.sps.storage.Repositories;
+import com.google.sps.stream.CommentStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Moderates submitted comments and stores the ones that pass, a batch at a time: the texts are sanitized and
+ * scored for spam, then the nicknames of the authors are looked up and all the comments are written together,
+ * each with its likes. A comment is stored under the id it was submitted with, so processing it again after a
+ * failure stores, counts and publishes it only once.
+ */
+public final class CommentProcessor {
+
+  private static final Logger logger = Logger.getLogger(CommentProcessor.class.getName());
+
+  public void process(List<RawComment> rawComments) throws IOException {
+    // Drop the spam before doing any work for it.
+    List<RawComment> accepted = new ArrayList<>();
+    List<String> texts = new ArrayList<>();
+    for (RawComment rawComment : rawComments) {
+      String text = CommentSanitizer.sanitizeText(rawComment.getText());
+      int spamScore = SpamScorer.score(text);
+      if (spamScore >= SpamScorer.SPAM_THRESHOLD) {
+        logger.info("Dropped a comment by user " + rawComment.getUserId() + " with spam score " + spamScore);
+        continue;
+      }
+      accepted.add(rawComment);
+      texts.add(text);
+    }
+    if (accepted.isEmpty()) {
+      return;
+    }
+
+    // Start the nickname lookups of all the authors together.
+    Map<String, Future<String>> nicknameFutures = new HashMap<>();
+    for (RawComment rawComment : accepted) {
+      nicknameFutures.computeIfAbsent(rawComment.getUserId(), Repositories.userInfo()::findNickname);
+    }
+
+    // Add all the comments before waiting for any of them, so they are written in one batch.
+    List<Comment> comments = new ArrayList<>();
+    List<Future<Boolean>> commentAdds = new ArrayList<>();
+    for (int i = 0; i < accepted.size(); i++) {
+      RawComment rawComment = accepted.get(i);
+      String nickname = Futures.await(nicknameFutures.get(rawComment.getUserId()));
+      // Use the nickname if the user has set one, otherwise their email address.
+      String author = nickname != null && !nickname.isEmpty() ? nickname : rawComment.getEmail();
+      Comment comment = new Comment.Builder(rawComment.getTimestamp())
+          .byAuthor(CommentSanitizer.sanitizeAuthor(author))
+          .rated(CommentSanitizer.sanitizeRate(rawComment.getRate()))
+          .likedSharedOptions(CommentCodec.likedLabels(CommentSanitizer.sanitizeLikedMask(rawComment.getLikedMask())))
+          .textWritten(texts.get(i))
+          .build();
+      comments.add(comment);
+      commentAdds.add(Repositories.comments().addSubmitted(rawComment.getId(), comment));
+    }
+    for (int i = 0; i < comments.size(); i++) {
+      // Only the attempt that stored a comment publishes it, so a retry never sends it twice.
+      if (Futures.await(commentAdds.get(i))) {
+        CommentStream.publish(comments.get(i));
+      }
+    }
+  }
+}
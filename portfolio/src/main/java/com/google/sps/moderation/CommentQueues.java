@@ -0,0 +1,38 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.moderation;
+
+import com.google.sps.storage.Repositories;
+
+/**
+ * Provides the queue submitted comments are processed from. With the datastore, comments are processed by
+ * App Engine task queue requests, since threads started by the application can't call the datastore there.
+ * Otherwise they are processed by a pool of worker threads in this process.
+ */
+public final class CommentQueues {
+
+  private CommentQueues() {}
+
+  public static CommentQueue get() {
+    return Holder.INSTANCE;
+  }
+
+  // The queue is created the first time it is used.
+  private static class Holder {
+    static final CommentQueue INSTANCE = Repositories.usesDatastore()
+        ? new TaskQueueCommentQueue()
+        : new ExecutorCommentQueue(new CommentProcessor());
+  }
+}
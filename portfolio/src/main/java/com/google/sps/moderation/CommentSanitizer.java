@@ -0,0 +1,69 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.moderation;
+
+import com.google.sps.data.CommentCodec;
+import com.google.sps.data.RatingHistogram;
+import java.util.regex.Pattern;
+
+/** Cleans up the fields of submitted comments before they are stored. */
+final class CommentSanitizer {
+
+  static final int MAX_TEXT_LENGTH = 2000;
+  static final int MAX_AUTHOR_LENGTH = 100;
+
+  // Control characters other than tabs and line breaks, and the characters overriding the text direction.
+  private static final Pattern INVISIBLE_CHARACTERS = Pattern.compile("[\\p{Cntrl}&&[^\\t\\n\\r]]|[\\u202A-\\u202E\\u2066-\\u2069]");
+  private static final Pattern BLANK_LINES = Pattern.compile("\\n{3,}");
+
+  private CommentSanitizer() {}
+
+  // Removes invisible characters and runs of blank lines, and cuts the text to the maximum length.
+  static String sanitizeText(String text) {
+    if (text == null) {
+      return "";
+    }
+    String cleaned = INVISIBLE_CHARACTERS.matcher(text.replace("\r\n", "\n")).replaceAll("");
+    cleaned = BLANK_LINES.matcher(cleaned).replaceAll("\n\n");
+    return truncate(cleaned.trim(), MAX_TEXT_LENGTH);
+  }
+
+  static String sanitizeAuthor(String author) {
+    if (author == null) {
+      return "";
+    }
+    String cleaned = INVISIBLE_CHARACTERS.matcher(author).replaceAll("").replaceAll("\\s+", " ");
+    return truncate(cleaned.trim(), MAX_AUTHOR_LENGTH);
+  }
+
+  // Moves a rate outside of the rating scale to its closest end.
+  static int sanitizeRate(int rate) {
+    return Math.max(RatingHistogram.MIN_RATE, Math.min(RatingHistogram.MAX_RATE, rate));
+  }
+
+  // Clears the bits that don't stand for any liked item.
+  static int sanitizeLikedMask(int likedMask) {
+    return likedMask & ((1 << CommentCodec.LIKED_ITEMS.length) - 1);
+  }
+
+  // Returns at most maxLength characters of the text, without splitting a surrogate pair.
+  static String truncate(String text, int maxLength) {
+    if (text.length() <= maxLength) {
+      return text;
+    }
+    int end = Character.isHighSurrogate(text.charAt(maxLength - 1)) ? maxLength - 1 : maxLength;
+    return text.substring(0, end);
+  }
+}
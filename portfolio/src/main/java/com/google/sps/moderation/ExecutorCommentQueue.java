@@ -0,0 +1,73 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.moderation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Processes the submitted comments on a pool of worker threads in this process. Each worker takes all the
+ * comments queued so far, up to MAX_BATCH_SIZE, and processes them as one batch.
+ */
+final class ExecutorCommentQueue implements CommentQueue {
+
+  private static final Logger logger = Logger.getLogger(ExecutorCommentQueue.class.getName());
+  private static final int WORKER_COUNT = 2;
+  private static final int MAX_BATCH_SIZE = 100;
+
+  private final BlockingQueue<RawComment> queue = new LinkedBlockingQueue<>();
+  private final CommentProcessor processor;
+
+  ExecutorCommentQueue(CommentProcessor processor) {
+    this.processor = processor;
+    ExecutorService workers = Executors.newFixedThreadPool(WORKER_COUNT, runnable -> {
+      Thread thread = new Thread(runnable, "comment-worker");
+      // The workers must not keep the server from shutting down.
+      thread.setDaemon(true);
+      return thread;
+    });
+    for (int i = 0; i < WORKER_COUNT; i++) {
+      workers.execute(this::work);
+    }
+  }
+
+  @Override
+  public void enqueue(RawComment comment) {
+    queue.add(comment);
+  }
+
+  private void work() {
+    try {
+      while (true) {
+        List<RawComment> batch = new ArrayList<>();
+        batch.add(queue.take());
+        queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+        try {
+          processor.process(batch);
+        } catch (Exception e) {
+          logger.log(Level.SEVERE, "Failed to process " + batch.size() + " comments", e);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
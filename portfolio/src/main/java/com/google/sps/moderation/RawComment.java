@@ -0,0 +1,73 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.moderation;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/** A comment as it was submitted, before it was moderated and stored. */
+public final class RawComment {
+    // Identifies the submission, so a comment processed again after a failure is stored only once.
+    private final long id;
+    private final String userId;
+    private final String email;
+    private final int rate;
+    // The liked items, as a CommentCodec "liked" bitmask.
+    private final int likedMask;
+    private final String text;
+    private final long timestamp;
+
+    public RawComment(long id, String userId, String email, int rate, int likedMask, String text, long timestamp) {
+        this.id = id;
+        this.userId = userId;
+        this.email = email;
+        this.rate = rate;
+        this.likedMask = likedMask;
+        this.text = text;
+        this.timestamp = timestamp;
+    }
+
+    // Returns a random id for a new submission. Ids stay below 2^53, so they are exact as JavaScript numbers.
+    public static long newId() {
+        return ThreadLocalRandom.current().nextLong(1, 1L << 53);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public int getLikedMask() {
+        return likedMask;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
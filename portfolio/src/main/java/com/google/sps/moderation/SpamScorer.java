@@ -0,0 +1,74 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.moderation;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scores how likely a comment is to be spam, from features of its text: links, shouting, long runs of
+ * the same character and phrases common in spam. Comments scoring SPAM_THRESHOLD or more are not stored.
+ */
+final class SpamScorer {
+
+  static final int SPAM_THRESHOLD = 5;
+
+  private static final Pattern LINK = Pattern.compile("(?i)\\b(https?://|www\\.)");
+  private static final Pattern REPEATED_CHARACTER = Pattern.compile("(.)\\1{7,}");
+  private static final String[] SPAM_PHRASES = {
+      "buy now", "click here", "free money", "limited offer", "casino", "viagra", "work from home"};
+  // Texts with fewer letters are too short to be shouting.
+  private static final int MIN_SHOUTING_LETTERS = 20;
+
+  private SpamScorer() {}
+
+  static int score(String text) {
+    int score = 0;
+    Matcher links = LINK.matcher(text);
+    while (links.find()) {
+      score += 2;
+    }
+    if (REPEATED_CHARACTER.matcher(text).find()) {
+      score += 2;
+    }
+    if (isShouting(text)) {
+      score += 2;
+    }
+    String lowerCaseText = text.toLowerCase(Locale.ROOT);
+    for (String phrase : SPAM_PHRASES) {
+      if (lowerCaseText.contains(phrase)) {
+        score += 3;
+      }
+    }
+    return score;
+  }
+
+  // Returns true if at least 80% of the letters of a long enough text are upper case.
+  private static boolean isShouting(String text) {
+    int letters = 0;
+    int upperCaseLetters = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (Character.isLetter(c)) {
+        letters++;
+        if (Character.isUpperCase(c)) {
+          upperCaseLetters++;
+        }
+      }
+    }
+    return letters >= MIN_SHOUTING_LETTERS && upperCaseLetters * 10 >= letters * 8;
+  }
+}
@@ -0,0 +1,68 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.moderation;
+
+import com.google.appengine.api.taskqueue.Queue;
+import com.google.appengine.api.taskqueue.QueueFactory;
+import com.google.appengine.api.taskqueue.TaskAlreadyExistsException;
+import com.google.appengine.api.taskqueue.TaskOptions;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Processes the submitted comments with App Engine push tasks, one per comment, which are retried until they
+ * succeed. The tasks are sent to WORKER_URL, and comments processed at the same time are still written together.
+ * Each task is named after the id of its comment, so a comment is enqueued at most once, and a retried task
+ * finds its comment already stored.
+ */
+public final class TaskQueueCommentQueue implements CommentQueue {
+
+  /** The URL of the servlet running the tasks. */
+  public static final String WORKER_URL = "/tasks/process-comment";
+
+  private final Queue queue = QueueFactory.getDefaultQueue();
+
+  TaskQueueCommentQueue() {}
+
+  @Override
+  public void enqueue(RawComment comment) {
+    // Cut overly long texts here already, since a task can only carry a limited payload.
+    String text = CommentSanitizer.truncate(comment.getText(), CommentSanitizer.MAX_TEXT_LENGTH);
+    try {
+      queue.add(TaskOptions.Builder.withUrl(WORKER_URL)
+          .taskName("comment-" + comment.getId())
+          .param("id", String.valueOf(comment.getId()))
+          .param("userId", comment.getUserId())
+          .param("email", comment.getEmail())
+          .param("rate", String.valueOf(comment.getRate()))
+          .param("liked", String.valueOf(comment.getLikedMask()))
+          .param("text", text)
+          .param("timestamp", String.valueOf(comment.getTimestamp())));
+    } catch (TaskAlreadyExistsException e) {
+      // An earlier call that seemed to fail did enqueue the comment.
+    }
+  }
+
+  /** Reads the comment sent by enqueue from the request running the task. */
+  public static RawComment fromTask(HttpServletRequest request) {
+    return new RawComment(
+        Long.parseLong(request.getParameter("id")),
+        request.getParameter("userId"),
+        request.getParameter("email"),
+        Integer.parseInt(request.getParameter("rate")),
+        Integer.parseInt(request.getParameter("liked")),
+        request.getParameter("text"),
+        Long.parseLong(request.getParameter("timestamp")));
+  }
+}
@@ -14,16 +14,9 @@
 
 package com.google.sps.servlets;
 
-import com.google.appengine.api.datastore.DatastoreService;
-import com.google.appengine.api.datastore.DatastoreServiceFactory;
-import com.google.appengine.api.datastore.Entity;
-import com.google.appengine.api.datastore.PreparedQuery;
-import com.google.appengine.api.datastore.Query;
-import com.google.appengine.api.datastore.Query.SortDirection;
 import com.google.appengine.api.users.UserService;
 import com.google.appengine.api.users.UserServiceFactory;
 import java.io.IOException;
-import java.io.PrintWriter;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -38,19 +31,8 @@ public class AuthServlet extends HttpServlet {
     response.setContentType("text/html;");
     UserService userService = UserServiceFactory.getUserService();
 
-    // If the user is logged in - display his email address and a logout URL.
-    if (userService.isUserLoggedIn()) {
-        String responseFormat = "<p id=\"isLoggedIn\">User is logged in</p>";
-        responseFormat += "<p>" + userService.getCurrentUser().getEmail() + "</p>";
-        responseFormat += "<p id=\"logoutUrl\">Logout <a href=\"" + userService.createLogoutURL("/") + "\">here</a>.</p>";
-        response.getWriter().println(responseFormat);
-    }
-    // If the user is not logged in - display a login URL.
-    else {
-        String responseFormat = "<p id=\"isLoggedIn\">User is not logged in</p>";
-        responseFormat += "<p id=\"loginUrl\">Login <a href=\"" + userService.createLoginURL("/") + "\">here</a> to leave a comment.</p>";
-        response.getWriter().println(responseFormat);
-    }
+    // If the user is logged in - display his email address and a logout URL. Otherwise - display a login URL.
+    SessionFragments.writeLoginState(response.getWriter(), request, userService);
   }
 
 }
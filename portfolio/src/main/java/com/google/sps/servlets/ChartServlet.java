@@ -14,44 +14,53 @@
 
 package com.google.sps.servlets;
 
-import com.google.appengine.api.datastore.DatastoreService;
-import com.google.appengine.api.datastore.DatastoreServiceFactory;
-import com.google.appengine.api.datastore.Entity;
-import com.google.appengine.api.datastore.PreparedQuery;
-import com.google.appengine.api.datastore.Query;
-import com.google.appengine.api.users.UserService;
-import com.google.appengine.api.users.UserServiceFactory;
-import com.google.gson.Gson;
-import java.util.HashMap;
+import com.google.sps.data.CommentRollup;
+import com.google.sps.data.RollupPeriod;
+import com.google.sps.storage.Repositories;
+import com.google.sps.json.Json;
+import java.util.List;
 import java.util.Map;
 import java.io.IOException;
-import java.io.PrintWriter;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-// Servlet returning information about the likes received
+/**
+ * Servlet returning information about the likes received. Without a range it returns how many times each
+ * item was liked in total. With range=day, week or month it returns the comment rollups of the last 24 hours,
+ * 7 days or 30 days, oldest first, read from the rollup entities rather than the comments.
+ */
 @WebServlet("/chart")
 public class ChartServlet extends HttpServlet {
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-      DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-      Query query = new Query("LikedItem");
-      PreparedQuery results = datastore.prepare(query);
-      
-      // Find how many times each item was liked and store it in a hash map.
-      Map<String, Long> likesCounters = new HashMap<>();
-      for (Entity entity : results.asIterable()) {
-          String itemName = (String) entity.getProperty("itemName");
-          long count = (long) entity.getProperty("count");
-          likesCounters.put(itemName, count);
-        }
+      String range = request.getParameter("range");
+      if (range != null) {
+          List<CommentRollup> rollups;
+          long now = System.currentTimeMillis();
+          switch (range) {
+              case "day":
+                  rollups = Repositories.comments().getRollups(RollupPeriod.HOUR, now, 24);
+                  break;
+              case "week":
+                  rollups = Repositories.comments().getRollups(RollupPeriod.DAY, now, 7);
+                  break;
+              case "month":
+                  rollups = Repositories.comments().getRollups(RollupPeriod.DAY, now, 30);
+                  break;
+              default:
+                  response.sendError(HttpServletResponse.SC_BAD_REQUEST, "range must be day, week or month");
+                  return;
+          }
+          Json.write(response, rollups);
+          return;
+      }
+
+      // Find how many times each item was liked.
+      Map<String, Long> likesCounters = Repositories.likeCounters().getCounts();
         
-      response.setContentType("application/json");
-      Gson gson = new Gson();
-      String json = gson.toJson(likesCounters);
-      response.getWriter().println(json);
+      Json.write(response, likesCounters);
     }
 }
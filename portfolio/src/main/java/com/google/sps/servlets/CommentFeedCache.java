@@ -0,0 +1,71 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The serialized JSON of the comments feed, cached per set of request parameters together with the version of
+ * the comments it was built from. An entry is only served while the comments are still at that version.
+ * Once the cache is full the least recently used entry is evicted, so requests with many distinct parameters
+ * can't flush the feeds that are in use.
+ */
+final class CommentFeedCache {
+
+  private static final int MAX_ENTRIES = 64;
+
+  // In access order, so the eldest entry is the least recently used one. Guarded by itself.
+  private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(MAX_ENTRIES, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  // Returns the cached feed for the parameters at the given version, or null if there is none.
+  Entry get(String parameters, long version) {
+    Entry entry;
+    synchronized (entries) {
+      entry = entries.get(parameters);
+    }
+    return entry != null && entry.version == version ? entry : null;
+  }
+
+  Entry put(String parameters, long version, byte[] json) {
+    Entry entry = new Entry(version, json, System.currentTimeMillis());
+    synchronized (entries) {
+      entries.put(parameters, entry);
+    }
+    return entry;
+  }
+
+  static final class Entry {
+    final long version;
+    final byte[] json;
+    // When the feed was built, which is no earlier than the last change of the comments.
+    final long lastModified;
+
+    private Entry(long version, byte[] json, long lastModified) {
+      this.version = version;
+      this.json = json;
+      this.lastModified = lastModified;
+    }
+
+    String getETag() {
+      return "\"" + version + "\"";
+    }
+  }
+}
@@ -0,0 +1,55 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.data.Comment;
+import com.google.sps.storage.Repositories;
+import com.google.sps.json.Json;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// Servlet returning the most recent comments matching a search query, e.g. /comments/search?q=gall*+nice&limit=10
+@WebServlet("/comments/search")
+public class CommentSearchServlet extends HttpServlet {
+
+  private static final int DEFAULT_LIMIT = 20;
+  private static final int MAX_LIMIT = 100;
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String query = request.getParameter("q");
+    String limitParameter = request.getParameter("limit");
+    int limit = DEFAULT_LIMIT;
+    if (limitParameter != null) {
+      try {
+        limit = Integer.parseInt(limitParameter);
+      } catch (NumberFormatException e) {
+        limit = 0;
+      }
+      if (limit < 1 || limit > MAX_LIMIT) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "limit must be a number from 1 to " + MAX_LIMIT);
+        return;
+      }
+    }
+
+    List<Comment> comments = Repositories.comments().search(query == null ? "" : query, limit);
+
+    Json.write(response, comments);
+  }
+}
@@ -0,0 +1,63 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.stream.CommentStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet sending newly posted comments to the page as server-sent events, instead of the page polling /data.
+ * <p>App Engine buffers the whole response and ends every request within 60 seconds, so a stream cannot stay
+ * open. Each request is a long poll instead: it waits until a comment is posted or POLL_TIMEOUT_MILLIS pass,
+ * sends the comments as events and returns. The browser's EventSource then reconnects by itself after
+ * RECONNECT_DELAY_MILLIS, sending the id of the last event it received in the Last-Event-ID header, so no comment
+ * posted in between is missed.
+ */
+@WebServlet("/comments/stream")
+public class CommentStreamServlet extends HttpServlet {
+
+  // Well below the request deadline. The waiting requests share the instance, which is threadsafe.
+  private static final long POLL_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(25);
+  private static final long RECONNECT_DELAY_MILLIS = 500;
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    long lastSequence = CommentStream.resumeAfter(request.getHeader("Last-Event-ID"));
+    StringBuilder pending = new StringBuilder();
+    long read;
+    try {
+      // The id of each event lets the reconnecting client resume after the last one it received.
+      read = CommentStream.awaitAfter(lastSequence, POLL_TIMEOUT_MILLIS,
+          (data, sequence) -> pending.append("id: ").append(sequence).append("\ndata: ").append(data).append("\n\n"));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      read = lastSequence;
+    }
+    if (read == lastSequence) {
+      // An event without data sends no message but still sets the id the client resumes after.
+      pending.append("id: ").append(lastSequence).append("\n\n");
+    }
+
+    response.setContentType("text/event-stream");
+    response.setCharacterEncoding("UTF-8");
+    response.setHeader("Cache-Control", "no-cache");
+    response.getWriter().write("retry: " + RECONNECT_DELAY_MILLIS + "\n\n" + pending);
+  }
+}
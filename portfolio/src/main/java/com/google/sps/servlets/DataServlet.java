@@ -14,21 +14,18 @@
 
 package com.google.sps.servlets;
 
-import com.google.appengine.api.datastore.DatastoreService;
-import com.google.appengine.api.datastore.DatastoreServiceFactory;
-import com.google.appengine.api.datastore.Entity;
-import com.google.appengine.api.datastore.PreparedQuery;
-import com.google.appengine.api.datastore.Query;
-import com.google.appengine.api.datastore.Query.SortDirection;
-import com.google.appengine.api.datastore.Query.FilterPredicate;
-import com.google.appengine.api.datastore.FetchOptions;
 import com.google.appengine.api.users.UserService;
 import com.google.appengine.api.users.UserServiceFactory;
 import com.google.sps.data.Comment;
-import com.google.gson.Gson;
+import com.google.sps.data.CommentCodec;
+import com.google.sps.data.RateLimiter;
+import com.google.sps.moderation.CommentQueues;
+import com.google.sps.moderation.RawComment;
+import com.google.sps.storage.Repositories;
+import com.google.sps.json.Json;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -38,74 +35,106 @@ import javax.servlet.http.HttpServletResponse;
 @WebServlet("/data")
 public class DataServlet extends HttpServlet {
 
+  // Each user can post a burst of up to 5 comments, and then one more every 10 seconds.
+  private static final RateLimiter commentRateLimiter = new RateLimiter(5, 10, TimeUnit.SECONDS);
+  private static final CommentFeedCache feedCache = new CommentFeedCache();
+
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-      Query query = new Query("Comment").addSort("timestamp", SortDirection.DESCENDING);
-      
-      DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-      PreparedQuery results = datastore.prepare(query);
-      
-      // Number of comments to display 
-      int limit = Integer.parseInt(request.getParameter("limit"));
-      List<Comment> comments = new ArrayList<>();
-      // Add the number of comments specified by the user to the comments list
-      for (Entity entity : results.asIterable(FetchOptions.Builder.withLimit(limit))) {
-          String authorVal = (String) entity.getProperty("author");
-          int rateVal = (int)(long) entity.getProperty("rate");
-          ArrayList<String> likedOptionsVal = new ArrayList<>();
-          if (Boolean.parseBoolean((String) entity.getProperty("is_info_liked"))) {
-              likedOptionsVal.add("The info");
-            }
-          if (Boolean.parseBoolean((String) entity.getProperty("is_facts_liked"))) {
-              likedOptionsVal.add("The facts");
-            }
-          if (Boolean.parseBoolean((String) entity.getProperty("is_gallery_liked"))) {
-              likedOptionsVal.add("The gallery");
-            }
-          if (Boolean.parseBoolean((String) entity.getProperty("is_other_liked"))) {
-              likedOptionsVal.add("Other");
-            }
-          String textVal = (String) entity.getProperty("text");
-          long timestampVal = (long) entity.getProperty("timestamp");
-          Comment comment = new Comment.Builder(timestampVal).byAuthor(authorVal).rated(rateVal).likedTheseOptions(likedOptionsVal).textWritten(textVal).build();
-          comments.add(comment);
-        }
-        Gson gson = new Gson();
-        response.setContentType("application/json;");
-        response.getWriter().println(gson.toJson(comments));
+      // Number of comments to display, and the rate the comments must have, if one was requested.
+      int limit;
+      Integer rateFilter;
+      try {
+          limit = Integer.parseInt(request.getParameter("limit"));
+          String rate = request.getParameter("rate");
+          rateFilter = rate == null ? null : Integer.valueOf(rate);
+      } catch (NumberFormatException e) {
+          response.sendError(HttpServletResponse.SC_BAD_REQUEST, "limit and rate must be numbers");
+          return;
+      }
+      if (limit < 0) {
+          response.sendError(HttpServletResponse.SC_BAD_REQUEST, "limit must not be negative");
+          return;
+      }
+      // Only return the comments with the requested liked item, if one was requested.
+      String likedFilter = request.getParameter("liked");
+
+      // Read the version before the comments, so a change made meanwhile is never cached under the old version.
+      long version = Repositories.comments().getVersion();
+      String cacheKey = limit + "|" + rateFilter + "|" + likedFilter;
+      CommentFeedCache.Entry feed = version < 0 ? null : feedCache.get(cacheKey, version);
+      if (feed == null) {
+          List<Comment> comments = Repositories.comments().list(limit, rateFilter, likedFilter);
+          if (version < 0) {
+              // The version is unknown, so the feed can't be cached.
+              Json.write(response, comments);
+              return;
+          }
+          feed = feedCache.put(cacheKey, version, Json.toBytes(comments));
+      }
+
+      // Let the browser keep the feed, but check with the server whether it changed before using it.
+      response.setHeader("Cache-Control", "no-cache");
+      response.setHeader("ETag", feed.getETag());
+      response.setDateHeader("Last-Modified", feed.lastModified);
+      if (isNotModified(request, feed)) {
+          response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+          return;
+      }
+      response.setContentType("application/json;charset=UTF-8");
+      response.setContentLength(feed.json.length);
+      response.getOutputStream().write(feed.json);
     }
 
+  // Returns true if the client already has this version of the feed.
+  private static boolean isNotModified(HttpServletRequest request, CommentFeedCache.Entry feed) {
+      String ifNoneMatch = request.getHeader("If-None-Match");
+      if (ifNoneMatch != null) {
+          for (String eTag : ifNoneMatch.split(",")) {
+              String trimmed = eTag.trim();
+              if (trimmed.equals("*") || trimmed.equals(feed.getETag()) || trimmed.equals("W/" + feed.getETag())) {
+                  return true;
+              }
+          }
+          return false;
+      }
+      // Last-Modified only has a precision of seconds.
+      long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+      return ifModifiedSince >= 0 && feed.lastModified / 1000 <= ifModifiedSince / 1000;
+  }
+
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-      // Create a new Comment entity based on the new comment that was received.
-      Entity commentEntity = new Entity("Comment");
-
       UserService userService = UserServiceFactory.getUserService();
-      String nickname = getUserNickname(userService.getCurrentUser().getUserId());
-      String authorVal;
+      String userId = userService.getCurrentUser().getUserId();
 
-      // If the user has set a nickname - use it for the author field
-      if (!nickname.equals("")) {
-          authorVal = nickname;
+      // Reject the comment before doing any work if the user is posting too often.
+      long retryAfterMillis = commentRateLimiter.tryAcquire(userId);
+      if (retryAfterMillis > 0) {
+          response.setHeader("Retry-After", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(retryAfterMillis) + 1));
+          response.sendError(429, "You are posting comments too quickly, please try again later.");
+          return;
       }
-      // Otherwise - use his email address
-      else {
-          authorVal = userService.getCurrentUser().getEmail();
+
+      int likedMask = 0;
+      for (String item : CommentCodec.LIKED_ITEMS) {
+          if (isItemLiked(request, item)) {
+              likedMask |= CommentCodec.likedBit(item);
+          }
+      }
+      int rateVal;
+      try {
+          rateVal = Integer.parseInt(getParameter(request, "rate", "3"));
+      } catch (NumberFormatException e) {
+          response.sendError(HttpServletResponse.SC_BAD_REQUEST, "rate must be a number");
+          return;
       }
-      int rateVal = Integer.parseInt(getParameter(request, "rate", "3"));
-      setIsItemLiked(request,commentEntity,"info");
-      setIsItemLiked(request,commentEntity,"facts");
-      setIsItemLiked(request,commentEntity,"gallery");
-      setIsItemLiked(request,commentEntity,"other");
       String textVal = getParameter(request,"text","");
       long timestamp = System.currentTimeMillis();
-      commentEntity.setProperty("author", authorVal);
-      commentEntity.setProperty("rate", rateVal);
-      commentEntity.setProperty("text", textVal);
-      commentEntity.setProperty("timestamp",timestamp);
-      // Add comment to the datastore
-      DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-      datastore.put(commentEntity);
+      // The comment is moderated and stored in the background, and pushed to the page once it was stored.
+      // Its id lets the comment be stored only once, however many times it is processed.
+      CommentQueues.get().enqueue(new RawComment(
+          RawComment.newId(), userId, userService.getCurrentUser().getEmail(), rateVal, likedMask, textVal, timestamp));
       response.sendRedirect("/index.html"); 
   }
  /**
@@ -120,56 +149,8 @@ public class DataServlet extends HttpServlet {
     return value;
   }
 
-  // Sets the 'is_*item*_liked' property of an entity.
-  private static void setIsItemLiked(HttpServletRequest request, Entity entity, String item) {
-     String itemParameterName = "is_" + item + "_liked";
-     if (Boolean.parseBoolean(getParameter(request, itemParameterName, "false"))) {
-          entity.setProperty(itemParameterName, "true");
-          updateChartData(item);
-      } 
-      else {
-          entity.setProperty(itemParameterName, "false");
-      }
-  }
-
-  // Returns the nickname of the user with id, or empty String if the user has not set a nickname.
-  private String getUserNickname(String id) {
-    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-    Query query =
-        new Query("UserInfo")
-            .setFilter(new Query.FilterPredicate("id", Query.FilterOperator.EQUAL, id));
-    PreparedQuery results = datastore.prepare(query);
-    Entity entity = results.asSingleEntity();
-    if (entity == null) {
-      return "";
-    }
-    String nickname = (String) entity.getProperty("nickname");
-    return nickname;
+  // Returns true if the 'is_*item*_liked' parameter of the request is set.
+  private static boolean isItemLiked(HttpServletRequest request, String item) {
+      return Boolean.parseBoolean(getParameter(request, "is_" + item + "_liked", "false"));
   }
-
-  // Update the data of the chart representing how many likes each item got.
-  private static void updateChartData(String itemLiked) {
-      DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-
-      // Find the entity that matches the item that was liked.
-      FilterPredicate likedItemFilter = new Query.FilterPredicate("itemName", Query.FilterOperator.EQUAL, itemLiked);
-      Query query = new Query("LikedItem").setFilter(likedItemFilter);
-      PreparedQuery results = datastore.prepare(query);
-
-      // If the entity exists - this item has been liked before - increment the counter by 1.
-      if (results.countEntities(FetchOptions.Builder.withDefaults())>0) {
-          Entity likedItemEntity = results.asSingleEntity();
-          long newCount = (long)likedItemEntity.getProperty("count")+1;
-          likedItemEntity.setProperty("count",newCount);
-          datastore.put(likedItemEntity);
-        }
-      
-      // If the entity doesn't exist - this is the first time this item is being liked - create the entity and set the counter to 1.
-      else {
-          Entity likedItemEntity = new Entity("LikedItem");
-          likedItemEntity.setProperty("itemName",itemLiked);
-          likedItemEntity.setProperty("count",1);
-          datastore.put(likedItemEntity);
-        }
-    }
 }
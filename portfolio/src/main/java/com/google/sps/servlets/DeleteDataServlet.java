@@ -14,15 +14,9 @@
 
 package com.google.sps.servlets;
 
-import com.google.appengine.api.datastore.DatastoreService;
-import com.google.appengine.api.datastore.DatastoreServiceFactory;
-import com.google.appengine.api.datastore.Key;
-import com.google.appengine.api.datastore.KeyFactory;
-import com.google.appengine.api.datastore.Entity;
-import com.google.appengine.api.datastore.PreparedQuery;
-import com.google.appengine.api.datastore.Query;
-import com.google.appengine.api.datastore.Query.SortDirection;
+import com.google.sps.storage.Repositories;
 import java.io.IOException;
+import java.io.PrintWriter;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -34,17 +28,16 @@ public class DeleteDataServlet extends HttpServlet {
 
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Query query = new Query("Comment").setKeysOnly();
-    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-    PreparedQuery results = datastore.prepare(query);
+    response.setContentType("text/plain;");
+    PrintWriter out = response.getWriter();
 
-    // Iterate over all entities in the Datastore to delete them
-    for (Entity entity : results.asIterable()) {
-        long id = entity.getKey().getId();
-        Key commentEntityKey=KeyFactory.createKey("Comment",id);
-        datastore.delete(commentEntityKey);
-    }
-    // Return an empty response
-    response.getWriter().println(); 
+    // Report the number of comments deleted so far as the deletion progresses.
+    Repositories.comments().deleteAll(deleted -> reportProgress(out, deleted));
   }
-}
\ No newline at end of file
+
+  // Writes the number of comments deleted so far and sends it to the client right away.
+  private static void reportProgress(PrintWriter out, long deleted) {
+    out.println("Deleted " + deleted + " comments");
+    out.flush();
+  }
+}
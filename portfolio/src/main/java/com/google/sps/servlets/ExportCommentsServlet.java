@@ -0,0 +1,92 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.users.UserService;
+import com.google.appengine.api.users.UserServiceFactory;
+import com.google.sps.data.Comment;
+import com.google.sps.json.Json;
+import com.google.sps.storage.CommentPage;
+import com.google.sps.storage.Repositories;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet exporting the comments as gzip-compressed newline-delimited JSON, one comment per line,
+ * in the format /comments/import reads. The comments are streamed a page at a time as they are read from storage.
+ * If they can't all be exported before the request deadline, the file ends with a {"nextCursor": ...} line instead,
+ * and /comments/export?cursor= with that cursor exports the rest into another file, to import after this one.
+ */
+@WebServlet("/comments/export")
+public class ExportCommentsServlet extends HttpServlet {
+
+  /** The property of the last line of a partial export, which holds the cursor the rest is exported from. */
+  public static final String NEXT_CURSOR_PROPERTY = "nextCursor";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  // Comments read from storage at a time.
+  private static final int PAGE_SIZE = 500;
+  // No page is read after this long, well before the 60 second request deadline.
+  private static final long TIME_LIMIT_MILLIS = TimeUnit.SECONDS.toMillis(45);
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    long startMillis = System.currentTimeMillis();
+    UserService userService = UserServiceFactory.getUserService();
+    if (!userService.isUserLoggedIn() || !userService.isUserAdmin()) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN, "Only administrators can export the comments.");
+      return;
+    }
+
+    CommentPage page;
+    try {
+      page = Repositories.comments().scan(request.getParameter("cursor"), PAGE_SIZE);
+    } catch (IllegalArgumentException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "cursor must be the nextCursor of an export");
+      return;
+    }
+
+    response.setContentType("application/gzip");
+    response.setHeader("Content-Disposition", "attachment; filename=\"comments.ndjson.gz\"");
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+        new GZIPOutputStream(response.getOutputStream(), BUFFER_SIZE), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+      while (true) {
+        for (Comment comment : page.getComments()) {
+          Json.GSON.toJson(comment, Comment.class, writer);
+          writer.write('\n');
+        }
+        if (page.getNextCursor() == null) {
+          break;
+        }
+        if (System.currentTimeMillis() - startMillis > TIME_LIMIT_MILLIS) {
+          Json.GSON.toJson(Collections.singletonMap(NEXT_CURSOR_PROPERTY, page.getNextCursor()), writer);
+          writer.write('\n');
+          break;
+        }
+        page = Repositories.comments().scan(page.getNextCursor(), PAGE_SIZE);
+      }
+    }
+  }
+}
@@ -0,0 +1,167 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.users.UserService;
+import com.google.appengine.api.users.UserServiceFactory;
+import com.google.gson.JsonParseException;
+import com.google.sps.data.Comment;
+import com.google.sps.json.Json;
+import com.google.sps.storage.Repositories;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet importing comments from newline-delimited JSON, as written by /comments/export, either plain or
+ * gzip-compressed. The comments are read and stored a batch at a time, so the whole file is never held in memory.
+ * An import that would run past the request deadline stops between batches and reports the line it stopped before,
+ * and posting the same file to /comments/import?startLine= with that line continues it. Comments that were already
+ * imported are skipped, so importing a file again adds no copies.
+ */
+@WebServlet("/comments/import")
+public class ImportCommentsServlet extends HttpServlet {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  // Comments stored together, which the repository writes with a single batch put.
+  private static final int BATCH_SIZE = 500;
+  // No batch is started after this long, leaving the last one time to finish before the 60 second deadline.
+  private static final long TIME_LIMIT_MILLIS = TimeUnit.SECONDS.toMillis(40);
+  // The start of the last line of a partial export, which holds no comment.
+  private static final String NEXT_CURSOR_LINE = "{\"" + ExportCommentsServlet.NEXT_CURSOR_PROPERTY + "\"";
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    long startMillis = System.currentTimeMillis();
+    UserService userService = UserServiceFactory.getUserService();
+    if (!userService.isUserLoggedIn() || !userService.isUserAdmin()) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN, "Only administrators can import comments.");
+      return;
+    }
+    long startLine = 1;
+    String startLineParameter = request.getParameter("startLine");
+    if (startLineParameter != null) {
+      try {
+        startLine = Long.parseLong(startLineParameter);
+      } catch (NumberFormatException e) {
+        startLine = 0;
+      }
+      if (startLine < 1) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "startLine must be a positive number");
+        return;
+      }
+    }
+
+    InputStream body = new BufferedInputStream(request.getInputStream(), BUFFER_SIZE);
+    // Recognize a gzip-compressed body by its magic number.
+    body.mark(2);
+    boolean gzipped = body.read() == 0x1f && body.read() == 0x8b;
+    body.reset();
+    if (gzipped) {
+      body = new GZIPInputStream(body, BUFFER_SIZE);
+    }
+    BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+    response.setContentType("text/plain;");
+    PrintWriter out = response.getWriter();
+    Progress progress = new Progress(out);
+    long lineNumber = 0;
+    // The line the comments of the batch start at.
+    long batchStartLine = startLine;
+    List<Comment> batch = new ArrayList<>(BATCH_SIZE);
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      if (lineNumber < startLine || line.trim().isEmpty() || line.startsWith(NEXT_CURSOR_LINE)) {
+        continue;
+      }
+      if (batch.isEmpty()) {
+        if (System.currentTimeMillis() - startMillis > TIME_LIMIT_MILLIS) {
+          out.println("Stopped before line " + lineNumber + " to finish before the request deadline. "
+              + progress + ". Import the same file with startLine=" + lineNumber + " to continue");
+          return;
+        }
+        batchStartLine = lineNumber;
+      }
+      Comment comment;
+      try {
+        comment = Json.GSON.fromJson(line, Comment.class);
+      } catch (JsonParseException | IllegalStateException e) {
+        if (progress.store(batch, batchStartLine)) {
+          out.println("Stopped at line " + lineNumber + ", which is not a valid comment. " + progress);
+        }
+        return;
+      }
+      batch.add(comment);
+      if (batch.size() == BATCH_SIZE) {
+        if (!progress.store(batch, batchStartLine)) {
+          return;
+        }
+        progress.report();
+        batch.clear();
+      }
+    }
+    if (progress.store(batch, batchStartLine)) {
+      progress.report();
+    }
+  }
+
+  // The number of comments read and imported so far, which are written to the client as batches are stored.
+  private static final class Progress {
+    private final PrintWriter out;
+    private long read;
+    private long imported;
+
+    Progress(PrintWriter out) {
+      this.out = out;
+    }
+
+    // Stores the comments, or reports why they can't be and returns false.
+    boolean store(List<Comment> comments, long startLine) {
+      try {
+        imported += Repositories.comments().importAll(comments);
+      } catch (IllegalArgumentException e) {
+        out.println("Stopped at the batch starting at line " + startLine + ", which has a comment that can't be "
+            + "stored: " + e.getMessage() + ". " + this);
+        return false;
+      }
+      read += comments.size();
+      return true;
+    }
+
+    // Writes the progress and sends it to the client right away.
+    void report() {
+      out.println(this);
+      out.flush();
+    }
+
+    @Override
+    public String toString() {
+      return "Imported " + imported + " comments, skipping " + (read - imported) + " already imported";
+    }
+  }
+}
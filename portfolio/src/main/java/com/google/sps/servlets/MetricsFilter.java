@@ -0,0 +1,243 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.metrics.DatastoreCallCounter;
+import com.google.sps.metrics.RequestMetrics;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRegistration;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Filter recording the latency, the number of datastore calls and the response size of every request,
+ * by the servlet path it was sent to. Requests to paths no servlet is mapped to are recorded together as "other".
+ * Asynchronous requests are recorded when they complete, without the bytes written through the unwrapped response
+ * of their asynchronous context. The metrics are served by /metrics.
+ */
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
+public class MetricsFilter implements Filter {
+
+  private static final String OTHER_ROUTE = "other";
+
+  // The paths the servlets are mapped to, which the requests are grouped by.
+  private final Set<String> routes = new HashSet<>();
+
+  @Override
+  public void init(FilterConfig filterConfig) {
+    DatastoreCallCounter.install();
+    for (ServletRegistration registration : filterConfig.getServletContext().getServletRegistrations().values()) {
+      for (String mapping : registration.getMappings()) {
+        // Only exact paths, so requests for static files don't each get their own route.
+        if (mapping.startsWith("/") && !mapping.contains("*") && !mapping.equals("/")) {
+          routes.add(mapping);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain)
+      throws IOException, ServletException {
+    if (!(servletRequest instanceof HttpServletRequest) || !(servletResponse instanceof HttpServletResponse)) {
+      chain.doFilter(servletRequest, servletResponse);
+      return;
+    }
+    HttpServletRequest request = (HttpServletRequest) servletRequest;
+    String route = routes.contains(request.getServletPath()) ? request.getServletPath() : OTHER_ROUTE;
+    CountingResponse response = new CountingResponse((HttpServletResponse) servletResponse);
+    long startNanos = System.nanoTime();
+    DatastoreCallCounter.start();
+    boolean failed = true;
+    try {
+      chain.doFilter(request, response);
+      failed = false;
+    } finally {
+      long datastoreCalls = DatastoreCallCounter.stop();
+      if (!failed && request.isAsyncStarted()) {
+        // Only the calls made before the request went asynchronous are counted.
+        request.getAsyncContext().addListener(new AsyncListener() {
+          @Override
+          public void onComplete(AsyncEvent event) {
+            record(route, startNanos, datastoreCalls, response, response.getStatus());
+          }
+
+          @Override
+          public void onTimeout(AsyncEvent event) {}
+
+          @Override
+          public void onError(AsyncEvent event) {}
+
+          @Override
+          public void onStartAsync(AsyncEvent event) {}
+        });
+      } else {
+        // An exception is answered with a 500 by the container.
+        record(route, startNanos, datastoreCalls, response, failed ? 500 : response.getStatus());
+      }
+    }
+  }
+
+  @Override
+  public void destroy() {}
+
+  private static void record(String route, long startNanos, long datastoreCalls, CountingResponse response, int status) {
+    long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    RequestMetrics.getInstance().forRoute(route).record(latencyMicros, datastoreCalls, response.bytes.get(), status);
+  }
+
+  // Counts the bytes of the response body, whether it is written to the output stream or the writer.
+  private static final class CountingResponse extends HttpServletResponseWrapper {
+    private final AtomicLong bytes = new AtomicLong();
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    private CountingResponse(HttpServletResponse response) {
+      super(response);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (outputStream == null) {
+        outputStream = new CountingOutputStream(super.getOutputStream(), bytes);
+      }
+      return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      if (writer == null) {
+        // Write through the writer of the response, so code holding the unwrapped response, like an asynchronous
+        // context, can still use its writer.
+        writer = new PrintWriter(new CountingWriter(super.getWriter(), Charset.forName(getCharacterEncoding()), bytes));
+      }
+      return writer;
+    }
+  }
+
+  // Counts the bytes the characters written take once encoded.
+  private static final class CountingWriter extends Writer {
+    private final Writer out;
+    private final Charset charset;
+    private final boolean utf8;
+    private final AtomicLong bytes;
+
+    private CountingWriter(Writer out, Charset charset, AtomicLong bytes) {
+      this.out = out;
+      this.charset = charset;
+      this.utf8 = charset.equals(StandardCharsets.UTF_8);
+      this.bytes = bytes;
+    }
+
+    @Override
+    public void write(char[] chars, int off, int len) throws IOException {
+      out.write(chars, off, len);
+      bytes.addAndGet(utf8 ? utf8Length(chars, off, len) : charset.encode(CharBuffer.wrap(chars, off, len)).limit());
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+      out.write(str, off, len);
+      bytes.addAndGet(utf8 ? utf8Length(str, off, len) : str.substring(off, off + len).getBytes(charset).length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+
+    private static long utf8Length(char[] chars, int off, int len) {
+      return utf8Length(CharBuffer.wrap(chars, off, len), 0, len);
+    }
+
+    // Counts without encoding: a surrogate pair takes 4 bytes, 2 bytes for each of its chars.
+    private static long utf8Length(CharSequence chars, int off, int len) {
+      long length = 0;
+      for (int i = off; i < off + len; i++) {
+        char c = chars.charAt(i);
+        length += c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+      }
+      return length;
+    }
+  }
+
+  private static final class CountingOutputStream extends ServletOutputStream {
+    private final ServletOutputStream out;
+    private final AtomicLong bytes;
+
+    private CountingOutputStream(ServletOutputStream out, AtomicLong bytes) {
+      this.out = out;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      bytes.incrementAndGet();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      bytes.addAndGet(len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+
+    @Override
+    public boolean isReady() {
+      return out.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      out.setWriteListener(writeListener);
+    }
+  }
+}
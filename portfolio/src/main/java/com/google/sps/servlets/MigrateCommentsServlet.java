@@ -0,0 +1,82 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.QueryResultList;
+import com.google.appengine.api.users.UserService;
+import com.google.appengine.api.users.UserServiceFactory;
+import com.google.sps.data.CommentCodec;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// Servlet converting Comment entities stored in older formats to the current one. Only administrators can run it.
+@WebServlet("/migrate-comments")
+public class MigrateCommentsServlet extends HttpServlet {
+
+  // Number of comments read and written per datastore call.
+  private static final int BATCH_SIZE = 500;
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    UserService userService = UserServiceFactory.getUserService();
+    if (!userService.isUserLoggedIn() || !userService.isUserAdmin()) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN, "Only administrators can migrate the comments.");
+      return;
+    }
+
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    Query query = new Query(CommentCodec.KIND);
+
+    int migrated = 0;
+    Cursor cursor = null;
+    // Page through all comments and rewrite the outdated ones, one batch at a time.
+    while (true) {
+      FetchOptions fetchOptions = FetchOptions.Builder.withLimit(BATCH_SIZE);
+      if (cursor != null) {
+        fetchOptions.startCursor(cursor);
+      }
+      QueryResultList<Entity> batch = datastore.prepare(query).asQueryResultList(fetchOptions);
+      List<Entity> outdatedEntities = new ArrayList<>();
+      for (Entity entity : batch) {
+        if (CommentCodec.needsMigration(entity)) {
+          CommentCodec.migrate(entity);
+          outdatedEntities.add(entity);
+        }
+      }
+      if (!outdatedEntities.isEmpty()) {
+        datastore.put(outdatedEntities);
+        migrated += outdatedEntities.size();
+      }
+      if (batch.size() < BATCH_SIZE) {
+        break;
+      }
+      cursor = batch.getCursor();
+    }
+
+    response.setContentType("text/plain;");
+    response.getWriter().println("Migrated " + migrated + " comments.");
+  }
+}
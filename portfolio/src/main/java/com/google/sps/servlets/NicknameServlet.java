@@ -14,16 +14,11 @@
 
 package com.google.sps.servlets;
 
-import com.google.appengine.api.datastore.DatastoreService;
-import com.google.appengine.api.datastore.DatastoreServiceFactory;
-import com.google.appengine.api.datastore.Entity;
-import com.google.appengine.api.datastore.PreparedQuery;
-import com.google.appengine.api.datastore.Query;
-import com.google.appengine.api.datastore.Query.SortDirection;
 import com.google.appengine.api.users.UserService;
 import com.google.appengine.api.users.UserServiceFactory;
+import com.google.sps.storage.Futures;
+import com.google.sps.storage.Repositories;
 import java.io.IOException;
-import java.io.PrintWriter;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -37,38 +32,15 @@ public class NicknameServlet extends HttpServlet {
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
     response.setContentType("text/html;");
     UserService userService = UserServiceFactory.getUserService();
-    PrintWriter out = response.getWriter();
-    
+
+    // Display a welcome message if the user has set a nickname, otherwise the form to set one.
     String nickname = getUserNickname(userService.getCurrentUser().getUserId());
-    if (nickname == null) {
-        String responseFormat = "<div id=\"nickname\"><p>You can set a nickname here: (If you don't choose a nickname your email address will be displayed)</p>";
-        responseFormat += "<form method=\"POST\" action=\"/nickname\">";
-        responseFormat += "<input name=\"nickname\"/>";
-        responseFormat += "<br/>";
-        responseFormat += "<button>Submit</button>";
-        responseFormat += "</form></div>";
-        out.println(responseFormat);  
-    }
-    // If the user is not logged in - display a login URL.
-    else {
-        String responseFormat = "<p id=\"nickname\">Welcome back, " + nickname + "!</p>";
-        out.println(responseFormat); 
-    }
+    SessionFragments.writeNickname(response.getWriter(), nickname);
   }
 
   /** Returns the nickname of the user with id, or null if the user has not set a nickname. */
-  private String getUserNickname(String id) {
-    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-    Query query =
-        new Query("UserInfo")
-            .setFilter(new Query.FilterPredicate("id", Query.FilterOperator.EQUAL, id));
-    PreparedQuery results = datastore.prepare(query);
-    Entity entity = results.asSingleEntity();
-    if (entity == null) {
-      return null;
-    }
-    String nickname = (String) entity.getProperty("nickname");
-    return nickname;
+  private String getUserNickname(String id) throws IOException {
+    return Futures.await(Repositories.userInfo().findNickname(id));
   }
 
   @Override
@@ -83,12 +55,8 @@ public class NicknameServlet extends HttpServlet {
     String nickname = request.getParameter("nickname");
     String id = userService.getCurrentUser().getUserId();
 
-    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-    Entity entity = new Entity("UserInfo", id);
-    entity.setProperty("id", id);
-    entity.setProperty("nickname", nickname);
     // Insert the new data
-    datastore.put(entity);
+    Repositories.userInfo().setNickname(id, nickname);
 
     response.sendRedirect("/");
   }
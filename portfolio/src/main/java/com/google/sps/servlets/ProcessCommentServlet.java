@@ -0,0 +1,42 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.moderation.CommentProcessor;
+import com.google.sps.moderation.TaskQueueCommentQueue;
+import java.io.IOException;
+import java.util.Collections;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// Servlet running the task queue tasks that moderate and store the submitted comments.
+@WebServlet(TaskQueueCommentQueue.WORKER_URL)
+public class ProcessCommentServlet extends HttpServlet {
+
+  private final CommentProcessor processor = new CommentProcessor();
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // App Engine removes this header from outside requests, so only the task queue can post comments here.
+    if (request.getHeader("X-AppEngine-QueueName") == null) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return;
+    }
+    // A failure responds with an error, which makes the task queue retry the task.
+    processor.process(Collections.singletonList(TaskQueueCommentQueue.fromTask(request)));
+  }
+}
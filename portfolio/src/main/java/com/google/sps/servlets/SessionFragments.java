@@ -0,0 +1,154 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.users.UserService;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * The HTML fragments describing the login state and the nickname of the user, prebuilt around the parts that vary
+ * and written piece by piece. The login and logout URLs only depend on the origin the page was loaded from,
+ * so they are created once per origin instead of on every request.
+ *
+ * <p>The origin is named by the client in the Host header, so only the origins listed in the
+ * {@code portfolio.cachedOrigins} system property, separated by commas, are cached. The URLs for any other origin
+ * are created on every request, and never served to another client.
+ */
+final class SessionFragments {
+
+  private static final Set<String> CACHED_ORIGINS =
+      new HashSet<>(Arrays.asList(System.getProperty("portfolio.cachedOrigins", "http://localhost:8080").split(",")));
+
+  private static final String LOGGED_IN_PREFIX = "<p id=\"isLoggedIn\">User is logged in</p><p>";
+  private static final String LOGOUT_PREFIX = "</p><p id=\"logoutUrl\">Logout <a href=\"";
+  private static final String LOGOUT_SUFFIX = "\">here</a>.</p>";
+  private static final String LOGIN_PREFIX = "<p id=\"isLoggedIn\">User is not logged in</p><p id=\"loginUrl\">Login <a href=\"";
+  private static final String LOGIN_SUFFIX = "\">here</a> to leave a comment.</p>";
+  private static final String NICKNAME_FORM =
+      "<div id=\"nickname\"><p>You can set a nickname here: (If you don't choose a nickname your email address will be displayed)</p>"
+      + "<form method=\"POST\" action=\"/nickname\"><input name=\"nickname\"/><br/><button>Submit</button></form></div>";
+  private static final String WELCOME_PREFIX = "<p id=\"nickname\">Welcome back, ";
+  private static final String WELCOME_SUFFIX = "!</p>";
+
+  private static final Map<String, String> loginUrls = new ConcurrentHashMap<>();
+  private static final Map<String, String> logoutUrls = new ConcurrentHashMap<>();
+  // The whole logged-out fragment and the end of the logged-in one, by origin.
+  private static final Map<String, String> loggedOutFragments = new ConcurrentHashMap<>();
+  private static final Map<String, String> loggedInSuffixes = new ConcurrentHashMap<>();
+
+  private SessionFragments() {}
+
+  static String loginUrl(HttpServletRequest request, UserService userService) {
+    return cached(loginUrls, request, () -> userService.createLoginURL("/"));
+  }
+
+  static String logoutUrl(HttpServletRequest request, UserService userService) {
+    return cached(logoutUrls, request, () -> userService.createLogoutURL("/"));
+  }
+
+  // Writes the login state of the user, with their email address and a logout URL, or a login URL.
+  static void writeLoginState(Writer out, HttpServletRequest request, UserService userService) throws IOException {
+    if (userService.isUserLoggedIn()) {
+      out.write(LOGGED_IN_PREFIX);
+      writeEscaped(out, userService.getCurrentUser().getEmail());
+      out.write(cached(loggedInSuffixes, request,
+          () -> LOGOUT_PREFIX + escape(logoutUrl(request, userService)) + LOGOUT_SUFFIX));
+    } else {
+      out.write(cached(loggedOutFragments, request,
+          () -> LOGIN_PREFIX + escape(loginUrl(request, userService)) + LOGIN_SUFFIX));
+    }
+    out.write('\n');
+  }
+
+  // Writes a welcome message with the nickname, or the form to set one if it is null.
+  static void writeNickname(Writer out, String nickname) throws IOException {
+    if (nickname == null) {
+      out.write(NICKNAME_FORM);
+    } else {
+      out.write(WELCOME_PREFIX);
+      writeEscaped(out, nickname);
+      out.write(WELCOME_SUFFIX);
+    }
+    out.write('\n');
+  }
+
+  private static String cached(Map<String, String> cache, HttpServletRequest request, Supplier<String> value) {
+    String origin = originOf(request);
+    if (!CACHED_ORIGINS.contains(origin)) {
+      return value.get();
+    }
+    return cache.computeIfAbsent(origin, o -> value.get());
+  }
+
+  // Returns the origin as it is written in a URL, without the port if it is the default one of the scheme.
+  private static String originOf(HttpServletRequest request) {
+    String scheme = request.getScheme();
+    int port = request.getServerPort();
+    boolean defaultPort = (scheme.equals("http") && port == 80) || (scheme.equals("https") && port == 443);
+    return scheme + "://" + request.getServerName() + (defaultPort ? "" : ":" + port);
+  }
+
+  private static String escape(String text) {
+    StringBuilder escaped = new StringBuilder(text.length());
+    for (int i = 0; i < text.length(); i++) {
+      String entity = entityOf(text.charAt(i));
+      if (entity != null) {
+        escaped.append(entity);
+      } else {
+        escaped.append(text.charAt(i));
+      }
+    }
+    return escaped.toString();
+  }
+
+  // Writes the text with the characters that are special in HTML escaped, without copying it first.
+  private static void writeEscaped(Writer out, String text) throws IOException {
+    int start = 0;
+    for (int i = 0; i < text.length(); i++) {
+      String entity = entityOf(text.charAt(i));
+      if (entity != null) {
+        out.write(text, start, i - start);
+        out.write(entity);
+        start = i + 1;
+      }
+    }
+    out.write(text, start, text.length() - start);
+  }
+
+  private static String entityOf(char c) {
+    switch (c) {
+      case '<':
+        return "&lt;";
+      case '>':
+        return "&gt;";
+      case '&':
+        return "&amp;";
+      case '"':
+        return "&quot;";
+      case '\'':
+        return "&#39;";
+      default:
+        return null;
+    }
+  }
+}
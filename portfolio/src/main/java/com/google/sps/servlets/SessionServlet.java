@@ -0,0 +1,54 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.users.UserService;
+import com.google.appengine.api.users.UserServiceFactory;
+import com.google.sps.json.Json;
+import com.google.sps.storage.Futures;
+import com.google.sps.storage.Repositories;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet returning everything the page header shows about the user in a single JSON response: whether they are
+ * logged in, and either their email address, nickname (if they set one) and logout URL, or a login URL.
+ */
+@WebServlet("/session")
+public class SessionServlet extends HttpServlet {
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    UserService userService = UserServiceFactory.getUserService();
+    Map<String, Object> session = new LinkedHashMap<>();
+    if (userService.isUserLoggedIn()) {
+      session.put("loggedIn", true);
+      session.put("email", userService.getCurrentUser().getEmail());
+      session.put("nickname", Futures.await(Repositories.userInfo().findNickname(userService.getCurrentUser().getUserId())));
+      session.put("logoutUrl", SessionFragments.logoutUrl(request, userService));
+    } else {
+      session.put("loggedIn", false);
+      session.put("loginUrl", SessionFragments.loginUrl(request, userService));
+    }
+    // The state depends on the user's cookies, so it must not be shared by caches.
+    response.setHeader("Cache-Control", "private, no-cache");
+    Json.write(response, session);
+  }
+}
@@ -0,0 +1,66 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import com.google.gson.Gson;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/** A local file of JSON records, one per line, that is only ever appended to. */
+final class AppendOnlyLog<T> {
+
+  private final Gson gson = new Gson();
+  private final Writer writer;
+
+  /** Opens the log at path, creating it if needed, after passing every record already in it to replay. */
+  AppendOnlyLog(Path path, Class<T> recordClass, Consumer<T> replay) {
+    try {
+      Files.createDirectories(path.toAbsolutePath().getParent());
+      if (Files.exists(path)) {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            // Skip a record that was cut off by a crash while it was being written.
+            if (!line.isEmpty() && line.endsWith("}")) {
+              replay.accept(gson.fromJson(line, recordClass));
+            }
+          }
+        }
+      }
+      writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open " + path, e);
+    }
+  }
+
+  /** Appends the record and flushes it to the file. */
+  synchronized void append(T record) {
+    try {
+      writer.write(gson.toJson(record));
+      writer.write('\n');
+      writer.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to append to the log", e);
+    }
+  }
+}
@@ -0,0 +1,275 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.storage;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.sps.data.Comment;
+import com.google.sps.data.CommentCodec;
+import com.google.sps.data.CommentRollupCodec;
+import com.google.sps.data.RatingHistogram;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Imports batches of comments with a plain batch put, outside the CommentWriteQueue, whose transactions only fit
+ * about 20 comments along with their summaries.
+ * <p>Each comment is keyed by its CommentCodec.importId, and the ones already stored are skipped. The keys of the
+ * new comments are recorded in a CommentImport entity named after the batch, so importing the same batch again
+ * after a failure stores and counts exactly the comments the failed import did. Their summaries, the rating
+ * histogram, the rollups and the like counters, are updated before the comments are put, in cross-group
+ * transactions that each also write a CommentImport marker, so a part of the summaries is counted only once
+ * however often it is retried.
+ */
+final class CommentImporter {
+
+  static final String KIND = "CommentImport";
+  // Maximum number of entities the datastore accepts in a single put.
+  static final int MAX_BATCH_SIZE = 500;
+  // A cross-group transaction spans up to 25 entity groups: a marker and the summary shards it updates.
+  private static final int MAX_SUMMARIES_PER_TRANSACTION = 24;
+
+  private final DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+
+  /** Imports the comments, skipping the ones already imported, and returns how many were stored. */
+  int importAll(List<Comment> comments) {
+    if (comments.size() > MAX_BATCH_SIZE) {
+      throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " comments can be imported at a time");
+    }
+    Map<Key, Comment> commentsByKey = new LinkedHashMap<>();
+    Map<Key, Entity> entities = new HashMap<>();
+    for (Comment comment : comments) {
+      Key key = KeyFactory.createKey(CommentCodec.KIND, CommentCodec.importId(comment));
+      // Encoded first, so a comment that can't be stored fails the batch before anything is written.
+      entities.put(key, CommentCodec.toEntity(key, comment));
+      commentsByKey.put(key, comment);
+    }
+    if (commentsByKey.isEmpty()) {
+      return 0;
+    }
+
+    Key batchKey = KeyFactory.createKey(KIND, batchId(commentsByKey.keySet()));
+    Entity batch = getOrNull(batchKey);
+    if (batch == null) {
+      Map<Key, Entity> stored = datastore.get(commentsByKey.keySet());
+      List<Key> newKeys = new ArrayList<>();
+      for (Key key : commentsByKey.keySet()) {
+        if (!stored.containsKey(key)) {
+          newKeys.add(key);
+        }
+      }
+      if (newKeys.isEmpty()) {
+        return 0;
+      }
+      batch = new Entity(batchKey);
+      batch.setUnindexedProperty("comments", newKeys);
+      batch.setUnindexedProperty("done", false);
+      datastore.put(batch);
+    } else if ((boolean) batch.getProperty("done")) {
+      return 0;
+    }
+    @SuppressWarnings("unchecked")
+    List<Key> newKeys = (List<Key>) batch.getProperty("comments");
+
+    List<Summary> summaries = summariesOf(newKeys, commentsByKey);
+    for (int start = 0; start < summaries.size(); start += MAX_SUMMARIES_PER_TRANSACTION) {
+      Key markerKey = KeyFactory.createKey(KIND, batchKey.getName() + "-" + start);
+      count(markerKey, summaries.subList(start, Math.min(start + MAX_SUMMARIES_PER_TRANSACTION, summaries.size())));
+    }
+
+    List<Entity> newComments = new ArrayList<>(newKeys.size());
+    for (Key key : newKeys) {
+      newComments.add(entities.get(key));
+    }
+    datastore.put(newComments);
+    batch.setUnindexedProperty("done", true);
+    datastore.put(batch);
+    return newComments.size();
+  }
+
+  // Adds the summaries to random shards in a transaction, unless the transaction writing the marker committed.
+  private void count(Key markerKey, List<Summary> summaries) {
+    Transactions.run(datastore, transaction -> {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      List<Key> keys = new ArrayList<>(summaries.size() + 1);
+      keys.add(markerKey);
+      for (Summary summary : summaries) {
+        keys.add(summary.key(random.nextInt(summary.shardCount)));
+      }
+      Map<Key, Entity> stored = datastore.get(transaction, keys);
+      if (stored.containsKey(markerKey)) {
+        return null;
+      }
+      List<Entity> entities = new ArrayList<>(keys.size());
+      entities.add(new Entity(markerKey));
+      for (int i = 0; i < summaries.size(); i++) {
+        Key key = keys.get(i + 1);
+        Entity entity = stored.containsKey(key) ? stored.get(key) : summaries.get(i).newEntity(key);
+        summaries.get(i).add(entity);
+        entities.add(entity);
+      }
+      datastore.put(transaction, entities);
+      return null;
+    });
+  }
+
+  // Returns the summaries the comments are counted in, each with the comments counted in it, in a deterministic
+  // order, so a retry splits them into the same transactions.
+  private static List<Summary> summariesOf(List<Key> keys, Map<Key, Comment> commentsByKey) {
+    Map<String, Summary> summaries = new LinkedHashMap<>();
+    for (Key key : keys) {
+      Comment comment = commentsByKey.get(key);
+      summaries.computeIfAbsent("histogram", name -> new HistogramSummary()).comments.add(comment);
+      List<Key> rollupKeys = CommentRollupCodec.keysOf(comment, 0);
+      for (int i = 0; i < rollupKeys.size(); i++) {
+        int period = i;
+        summaries.computeIfAbsent(rollupKeys.get(i).getName(), name -> new RollupSummary(period))
+            .comments.add(comment);
+      }
+      for (String item : CommentCodec.likedItems(CommentCodec.likedMask(comment))) {
+        summaries.computeIfAbsent("likes-" + item, name -> new LikesSummary(item)).comments.add(comment);
+      }
+    }
+    return new ArrayList<>(summaries.values());
+  }
+
+  // Returns a name identifying the batch of comments with the given keys.
+  private static String batchId(Collection<Key> keys) {
+    ByteBuffer ids = ByteBuffer.allocate(keys.size() * Long.BYTES);
+    for (Key key : keys) {
+      ids.putLong(key.getId());
+    }
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(ids.array());
+      return Long.toHexString(ByteBuffer.wrap(digest).getLong());
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform supports SHA-256.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Entity getOrNull(Key key) {
+    try {
+      return datastore.get(key);
+    } catch (EntityNotFoundException e) {
+      return null;
+    }
+  }
+
+  // A summary entity, of which a random shard is updated, and the comments of the batch counted in it.
+  private abstract static class Summary {
+    final int shardCount;
+    final List<Comment> comments = new ArrayList<>();
+
+    Summary(int shardCount) {
+      this.shardCount = shardCount;
+    }
+
+    abstract Key key(int shard);
+
+    abstract Entity newEntity(Key key);
+
+    // Counts the comments in the shard entity.
+    abstract void add(Entity entity);
+  }
+
+  private static final class HistogramSummary extends Summary {
+    HistogramSummary() {
+      super(RatingHistogram.SHARD_COUNT);
+    }
+
+    @Override
+    Key key(int shard) {
+      return RatingHistogram.shardKey(shard);
+    }
+
+    @Override
+    Entity newEntity(Key key) {
+      return RatingHistogram.newEntity(key);
+    }
+
+    @Override
+    void add(Entity entity) {
+      for (Comment comment : comments) {
+        RatingHistogram.increment(entity, comment.getRate());
+      }
+    }
+  }
+
+  // The rollup of one of the RollupPeriods, in the order of CommentRollupCodec.keysOf.
+  private static final class RollupSummary extends Summary {
+    private final int period;
+
+    RollupSummary(int period) {
+      super(CommentRollupCodec.SHARD_COUNT);
+      this.period = period;
+    }
+
+    @Override
+    Key key(int shard) {
+      return CommentRollupCodec.keysOf(comments.get(0), shard).get(period);
+    }
+
+    @Override
+    Entity newEntity(Key key) {
+      return CommentRollupCodec.newEntity(key);
+    }
+
+    @Override
+    void add(Entity entity) {
+      for (Comment comment : comments) {
+        CommentRollupCodec.add(entity, comment);
+      }
+    }
+  }
+
+  private static final class LikesSummary extends Summary {
+    private final String item;
+
+    LikesSummary(String item) {
+      super(LikedItemShards.SHARD_COUNT);
+      this.item = item;
+    }
+
+    @Override
+    Key key(int shard) {
+      return LikedItemShards.key(item, shard);
+    }
+
+    @Override
+    Entity newEntity(Key key) {
+      return LikedItemShards.newEntity(key, item);
+    }
+
+    @Override
+    void add(Entity entity) {
+      LikedItemShards.add(entity, comments.size());
+    }
+  }
+}
@@ -0,0 +1,40 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.google.sps.storage;
+
+import com.google.sps.data.Comment;
+import java.util.List;
+
+/** A page of the stored comments, and the cursor the next page starts at. */
+public final class CommentPage {
+
+  private final List<Comment> comments;
+  private final String nextCursor;
+
+  CommentPage(List<Comment> comments, String nextCursor) {
+    this.comments = comments;
+    this.nextCursor = nextCursor;
+  }
+
+  public List<Comment> getComments() {
+    return comments;
+  }
+
+  /** Returns the cursor to pass to {@link CommentRepository#scan} for the next page, or null if this is the last. */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+}
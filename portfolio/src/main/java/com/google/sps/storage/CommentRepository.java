@@ -0,0 +1,90 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import com.google.sps.data.Comment;
+import com.google.sps.data.CommentRollup;
+import com.google.sps.data.RollupPeriod;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+
+/** Stores the comments posted on the portfolio page, along with the number of comments given each rate. */
+public interface CommentRepository {
+
+  /** Starts storing a new comment and returns a future of the id it was stored with. */
+  Future<Long> add(Comment comment);
+
+  /**
+   * Starts storing a submitted comment, unless the comment submitted with the same submission id was already
+   * stored, and returns a future of true if it was stored by this call. The items the comment liked are counted
+   * in the like counters along with it, so processing a submission again duplicates neither the comment nor its
+   * likes.
+   */
+  Future<Boolean> addSubmitted(long submissionId, Comment comment);
+
+  /**
+   * Returns up to limit comments, newest first. If rate or likedItem are not null, only the comments
+   * with that rate or that liked that item are returned.
+   */
+  List<Comment> list(int limit, Integer rate, String likedItem);
+
+  /**
+   * Returns up to limit of the most recent comments whose author or text contain every term of the query,
+   * newest first. A term ending with '*' matches every word starting with it.
+   */
+  List<Comment> search(String query, int limit);
+
+  /**
+   * Stores up to 500 imported comments, skipping the ones that were already imported, and returns how many were
+   * stored. Each is stored under its CommentCodec.importId and counted in the summaries and the like counters,
+   * so importing the same comments again, for example after a failed import, stores and counts each only once.
+   * Unlike the other writes, the comments are not stored in the same transaction as their summaries.
+   *
+   * @throws IllegalArgumentException if a comment can't be stored
+   */
+  int importAll(List<Comment> comments);
+
+  /**
+   * Returns up to limit of the stored comments in no particular order, starting after the page whose next cursor
+   * is given, or at the first comment if it is null. A scan can be continued by a later request, and returns every
+   * comment that was stored before it began exactly once.
+   *
+   * @throws IllegalArgumentException if the cursor is not one returned by this repository
+   */
+  CommentPage scan(String cursor, int limit);
+
+  /** Returns the number of comments given each rate, ordered by rate. */
+  Map<Integer, Long> getRatingHistogram();
+
+  /**
+   * Returns the rollups of count consecutive periods, ending with the period containing end, oldest first.
+   * Periods in which no comments were posted have empty rollups.
+   */
+  List<CommentRollup> getRollups(RollupPeriod period, long end, int count);
+
+  /**
+   * Returns the version of the comments, which increases whenever a comment is added or the comments are
+   * deleted, or -1 if it is not known.
+   */
+  long getVersion();
+
+  /**
+   * Deletes all the comments and returns how many were deleted. The number deleted so far is passed to
+   * progress while the deletion runs.
+   */
+  long deleteAll(LongConsumer progress);
+}
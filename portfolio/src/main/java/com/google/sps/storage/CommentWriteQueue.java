@@ -0,0 +1,239 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.sps.data.Comment;
+import com.google.sps.data.CommentCodec;
+import com.google.sps.data.CommentRollupCodec;
+import com.google.sps.data.RatingHistogram;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coalesces the comments posted by concurrent requests into batched datastore writes (group commit).
+ * <p>A request waiting for its comment to be written takes over writing if no other request is, and writes the
+ * queued comments in one cross-group transaction, together with a shard of the rating histogram, of the rollups
+ * of the periods the comments were posted in and of the like counters of the items they liked, each updated once
+ * for the whole batch. A transaction that collides with another instance's is retried on freshly chosen shards,
+ * so the summaries never lose a comment. A submitted comment is keyed by its submission id and skipped if it was
+ * already written, so writing it again counts it only once. Comments are encoded when they are queued, so one
+ * that can't be stored fails on its own instead of failing the batch it would be written with.
+ * The other requests wait for it, so under load many comments share one write, and a single comment is still
+ * written right away.
+ */
+final class CommentWriteQueue {
+
+  // A cross-group transaction spans up to 25 entity groups, shared by the comments, each in its own group, and
+  // the summary shards.
+  private static final int MAX_ENTITY_GROUPS = 25;
+  // How long a request waits for a batch written by another request before checking again.
+  private static final long WAIT_MILLIS = 10;
+
+  private final DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+  private final ConcurrentLinkedQueue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean writing = new AtomicBoolean();
+  // Increased after every batch, so cached copies of the comments are refreshed.
+  private final MemcacheVersion version;
+
+  CommentWriteQueue(MemcacheVersion version) {
+    this.version = version;
+  }
+
+  /**
+   * Queues a new comment and returns a future of its id, which writes the queued comments if needed when waited on.
+   *
+   * @throws IllegalArgumentException if the comment can't be stored
+   */
+  Future<Long> enqueue(Comment comment) {
+    PendingWrite write = new PendingWrite(null, comment);
+    queue.add(write);
+    return new DeferredFuture<>(() -> awaitWritten(write).getId());
+  }
+
+  /**
+   * Queues a submitted comment, with its likes, and returns a future of true if it was written by this call or
+   * false if it had already been written, which writes the queued comments if needed when waited on.
+   *
+   * @throws IllegalArgumentException if the comment can't be stored
+   */
+  Future<Boolean> enqueueSubmitted(long submissionId, Comment comment) {
+    PendingWrite write = new PendingWrite(KeyFactory.createKey(CommentCodec.KIND, submissionId), comment);
+    queue.add(write);
+    return new DeferredFuture<>(() -> awaitWritten(write) != null);
+  }
+
+  // Waits until the batch including the comment was written, writing it if no other request is.
+  private Key awaitWritten(PendingWrite write) throws Exception {
+    while (!write.written.isDone()) {
+      if (writing.compareAndSet(false, true)) {
+        try {
+          writeBatch();
+        } finally {
+          writing.set(false);
+        }
+      } else {
+        // Another request is writing a batch, which may include this comment.
+        try {
+          write.written.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+          // Check again whether this request should write the batch.
+        }
+      }
+    }
+    return write.written.get();
+  }
+
+  private void writeBatch() {
+    List<PendingWrite> batch = new ArrayList<>();
+    // The summaries a comment is counted in are the same for every shard, so shard 0 stands for all when counting.
+    Set<Key> summaryKeys = new LinkedHashSet<>();
+    summaryKeys.add(RatingHistogram.shardKey(0));
+    PendingWrite write;
+    // Only this thread removes comments from the queue, so the comment peeked at is the one polled.
+    while ((write = queue.peek()) != null) {
+      Set<Key> newSummaryKeys = new LinkedHashSet<>(summaryKeys);
+      newSummaryKeys.addAll(summaryKeysOf(write, 0, 0));
+      if (batch.size() + 1 + newSummaryKeys.size() > MAX_ENTITY_GROUPS) {
+        break;
+      }
+      queue.poll();
+      batch.add(write);
+      summaryKeys = newSummaryKeys;
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    try {
+      List<Key> keys = Transactions.run(datastore, transaction -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Key histogramKey = RatingHistogram.shardKey(random.nextInt(RatingHistogram.SHARD_COUNT));
+        int rollupShard = random.nextInt(CommentRollupCodec.SHARD_COUNT);
+        int likesShard = random.nextInt(LikedItemShards.SHARD_COUNT);
+        Set<Key> keysToRead = new LinkedHashSet<>();
+        keysToRead.add(histogramKey);
+        for (PendingWrite pending : batch) {
+          keysToRead.addAll(summaryKeysOf(pending, rollupShard, likesShard));
+          if (pending.key != null) {
+            keysToRead.add(pending.key);
+          }
+        }
+        Map<Key, Entity> stored = datastore.get(transaction, keysToRead);
+        // Copied, since shards that don't exist yet are added to it.
+        Map<Key, Entity> summaryEntities = new HashMap<>(stored);
+        for (PendingWrite pending : batch) {
+          if (pending.key != null) {
+            summaryEntities.remove(pending.key);
+          }
+        }
+        Entity histogramEntity = summaryEntities.computeIfAbsent(histogramKey, RatingHistogram::newEntity);
+        List<Entity> comments = new ArrayList<>(batch.size());
+        // The positions in the batch of the comments that are written. The others keep a null key.
+        List<Integer> positions = new ArrayList<>(batch.size());
+        Set<Key> submissionKeys = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+          PendingWrite pending = batch.get(i);
+          if (pending.key != null && (stored.containsKey(pending.key) || !submissionKeys.add(pending.key))) {
+            // Already written, with its summaries, by another attempt to process the submission.
+            continue;
+          }
+          // A copy, since a put completes the key of a new entity, which a retry must not reuse.
+          Entity comment = pending.key == null ? new Entity(CommentCodec.KIND) : new Entity(pending.key);
+          comment.setPropertiesFrom(pending.entity);
+          comments.add(comment);
+          positions.add(i);
+          RatingHistogram.increment(histogramEntity, pending.comment.getRate());
+          for (Key rollupKey : CommentRollupCodec.keysOf(pending.comment, rollupShard)) {
+            CommentRollupCodec.add(
+                summaryEntities.computeIfAbsent(rollupKey, CommentRollupCodec::newEntity), pending.comment);
+          }
+          if (pending.key != null) {
+            for (String item : CommentCodec.likedItems(CommentCodec.likedMask(pending.comment))) {
+              Entity likes = summaryEntities.computeIfAbsent(
+                  LikedItemShards.key(item, likesShard), key -> LikedItemShards.newEntity(key, item));
+              LikedItemShards.add(likes, 1);
+            }
+          }
+        }
+        Key[] batchKeys = new Key[batch.size()];
+        if (!comments.isEmpty()) {
+          // The comments come first, so their keys are in the same order as the positions.
+          List<Entity> entities = new ArrayList<>(comments);
+          entities.addAll(summaryEntities.values());
+          List<Key> putKeys = datastore.put(transaction, entities);
+          for (int i = 0; i < positions.size(); i++) {
+            batchKeys[positions.get(i)] = putKeys.get(i);
+          }
+        }
+        return Arrays.asList(batchKeys);
+      });
+      version.increment();
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).written.complete(keys.get(i));
+      }
+    } catch (RuntimeException e) {
+      for (PendingWrite pending : batch) {
+        pending.written.completeExceptionally(e);
+      }
+    }
+  }
+
+  // Returns the keys of the rollup and like counter shards the comment is counted in.
+  private static List<Key> summaryKeysOf(PendingWrite write, int rollupShard, int likesShard) {
+    List<Key> keys = new ArrayList<>(CommentRollupCodec.keysOf(write.comment, rollupShard));
+    if (write.key != null) {
+      for (String item : CommentCodec.likedItems(CommentCodec.likedMask(write.comment))) {
+        keys.add(LikedItemShards.key(item, likesShard));
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * A comment waiting to be written, its encoded properties and the key it was written with, or null if it had
+   * already been written. A submitted comment has the key of its submission id, and its likes are counted along
+   * with it.
+   */
+  private static final class PendingWrite {
+    private final Key key;
+    private final Comment comment;
+    private final Entity entity;
+    private final CompletableFuture<Key> written = new CompletableFuture<>();
+
+    private PendingWrite(Key key, Comment comment) {
+      this.key = key;
+      this.comment = comment;
+      entity = CommentCodec.toEntity(comment);
+    }
+  }
+}
@@ -0,0 +1,283 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import com.google.appengine.api.datastore.AsyncDatastoreService;
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.DatastoreFailureException;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.CompositeFilterOperator;
+import com.google.appengine.api.datastore.Query.Filter;
+import com.google.appengine.api.datastore.Query.FilterOperator;
+import com.google.appengine.api.datastore.Query.FilterPredicate;
+import com.google.appengine.api.datastore.Query.SortDirection;
+import com.google.appengine.api.datastore.QueryResultList;
+import com.google.sps.data.Comment;
+import com.google.sps.data.CommentCodec;
+import com.google.sps.data.CommentRollup;
+import com.google.sps.data.CommentRollupCodec;
+import com.google.sps.data.CommentSearchIndex;
+import com.google.sps.data.RatingHistogram;
+import com.google.sps.data.RollupPeriod;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+
+/** Stores the comments as Comment entities in the datastore, in the format of CommentCodec. */
+public final class DatastoreCommentRepository implements CommentRepository {
+
+  // Maximum number of entities the datastore accepts in a single batch call.
+  private static final int BATCH_SIZE = 500;
+  // Maximum number of comments a search reads to find the ones matching a long prefix.
+  private static final int MAX_SEARCH_SCAN = 2000;
+  // Maximum number of batch deletes running at the same time.
+  private static final int MAX_DELETES_IN_FLIGHT = 8;
+
+  private final AsyncDatastoreService datastore = DatastoreServiceFactory.getAsyncDatastoreService();
+  private final MemcacheVersion version = new MemcacheVersion("comment-board-version");
+  // Comments are written in batches shared by concurrent requests.
+  private final CommentWriteQueue writeQueue = new CommentWriteQueue(version);
+  private final CommentImporter importer = new CommentImporter();
+
+  @Override
+  public Future<Long> add(Comment comment) {
+    return writeQueue.enqueue(comment);
+  }
+
+  @Override
+  public Future<Boolean> addSubmitted(long submissionId, Comment comment) {
+    // Stored under the submission id, in the same transaction as its likes.
+    return writeQueue.enqueueSubmitted(submissionId, comment);
+  }
+
+  @Override
+  public List<Comment> list(int limit, Integer rate, String likedItem) {
+    Query query = new Query(CommentCodec.KIND).addSort("timestamp", SortDirection.DESCENDING);
+    // Filtering on both properties is served by the composite indexes in datastore-indexes.xml.
+    List<Filter> filters = new ArrayList<>();
+    if (rate != null) {
+      filters.add(new FilterPredicate("rate", FilterOperator.EQUAL, (long) rate));
+    }
+    if (likedItem != null) {
+      filters.add(new FilterPredicate("likedItems", FilterOperator.EQUAL, likedItem));
+    }
+    if (filters.size() == 1) {
+      query.setFilter(filters.get(0));
+    } else if (filters.size() > 1) {
+      query.setFilter(CompositeFilterOperator.and(filters));
+    }
+
+    List<Comment> comments = new ArrayList<>();
+    for (Entity entity : datastore.prepare(query).asIterable(FetchOptions.Builder.withLimit(limit))) {
+      comments.add(CommentCodec.fromEntity(entity));
+    }
+    return comments;
+  }
+
+  @Override
+  public List<Comment> search(String query, int limit) {
+    List<String> terms = CommentSearchIndex.parseQuery(query);
+    List<Comment> matches = new ArrayList<>();
+    if (terms.isEmpty() || limit <= 0) {
+      return matches;
+    }
+    // One equality filter on the search tokens per term, merged by the datastore using the composite index
+    // declared in datastore-indexes.xml.
+    List<Filter> filters = new ArrayList<>();
+    for (String term : terms) {
+      String token = CommentSearchIndex.queryToken(term);
+      if (token == null) {
+        return matches;
+      }
+      filters.add(new FilterPredicate("tokens", FilterOperator.EQUAL, token));
+    }
+    Query datastoreQuery = new Query(CommentCodec.KIND)
+        .setFilter(filters.size() == 1 ? filters.get(0) : CompositeFilterOperator.and(filters))
+        .addSort("timestamp", SortDirection.DESCENDING);
+
+    // A prefix longer than the indexed ones also finds comments it doesn't match, which are skipped here.
+    int scanned = 0;
+    FetchOptions fetchOptions = FetchOptions.Builder.withChunkSize(Math.min(limit, BATCH_SIZE));
+    for (Entity entity : datastore.prepare(datastoreQuery).asIterable(fetchOptions)) {
+      Comment comment = CommentCodec.fromEntity(entity);
+      if (CommentSearchIndex.matches(comment, terms)) {
+        matches.add(comment);
+        if (matches.size() == limit) {
+          break;
+        }
+      }
+      if (++scanned == MAX_SEARCH_SCAN) {
+        break;
+      }
+    }
+    return matches;
+  }
+
+  @Override
+  public int importAll(List<Comment> comments) {
+    int imported = importer.importAll(comments);
+    if (imported > 0) {
+      version.increment();
+    }
+    return imported;
+  }
+
+  @Override
+  public CommentPage scan(String cursor, int limit) {
+    // In the order of the keys, so the cursor continues after the last comment returned.
+    FetchOptions fetchOptions = FetchOptions.Builder.withLimit(limit);
+    if (cursor != null) {
+      fetchOptions.startCursor(Cursor.fromWebSafeString(cursor));
+    }
+    QueryResultList<Entity> entities = datastore.prepare(new Query(CommentCodec.KIND)).asQueryResultList(fetchOptions);
+    List<Comment> comments = new ArrayList<>(entities.size());
+    for (Entity entity : entities) {
+      comments.add(CommentCodec.fromEntity(entity));
+    }
+    return new CommentPage(comments, entities.size() < limit ? null : entities.getCursor().toWebSafeString());
+  }
+
+  @Override
+  public Map<Integer, Long> getRatingHistogram() {
+    return RatingHistogram.toMap(await(datastore.get(RatingHistogram.keys())).values());
+  }
+
+  @Override
+  public List<CommentRollup> getRollups(RollupPeriod period, long end, int count) {
+    List<Long> starts = new ArrayList<>(count);
+    List<List<Key>> shardKeys = new ArrayList<>(count);
+    List<Key> keys = new ArrayList<>();
+    long start = period.startOf(end) - (count - 1) * period.getMillis();
+    for (int i = 0; i < count; i++, start += period.getMillis()) {
+      starts.add(start);
+      shardKeys.add(CommentRollupCodec.keys(period, start));
+      keys.addAll(shardKeys.get(i));
+    }
+    // A single batch get of the shards of all rollups, without reading any comment.
+    Map<Key, Entity> entities = await(datastore.get(keys));
+    List<CommentRollup> rollups = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      List<Entity> shards = new ArrayList<>();
+      for (Key key : shardKeys.get(i)) {
+        if (entities.containsKey(key)) {
+          shards.add(entities.get(key));
+        }
+      }
+      rollups.add(CommentRollupCodec.fromEntities(shards, starts.get(i)));
+    }
+    return rollups;
+  }
+
+  @Override
+  public long getVersion() {
+    return version.get();
+  }
+
+  @Override
+  public long deleteAll(LongConsumer progress) {
+    Query query = new Query(CommentCodec.KIND).setKeysOnly();
+
+    // Collect the keys of all comments into batches and delete each batch asynchronously,
+    // keeping a bounded number of batch deletes in flight.
+    Queue<PendingDelete> pendingDeletes = new ArrayDeque<>();
+    List<Key> batch = new ArrayList<>(BATCH_SIZE);
+    long deleted = 0;
+    for (Entity entity : datastore.prepare(query).asIterable(FetchOptions.Builder.withChunkSize(BATCH_SIZE))) {
+      batch.add(entity.getKey());
+      if (batch.size() == BATCH_SIZE) {
+        if (pendingDeletes.size() == MAX_DELETES_IN_FLIGHT) {
+          deleted += pendingDeletes.remove().await();
+          progress.accept(deleted);
+        }
+        pendingDeletes.add(new PendingDelete(datastore.delete(batch), batch.size()));
+        batch = new ArrayList<>(BATCH_SIZE);
+      }
+    }
+    if (!batch.isEmpty()) {
+      pendingDeletes.add(new PendingDelete(datastore.delete(batch), batch.size()));
+    }
+    // Reset the rating histogram and the rollups along with the comments they describe, and forget the imports,
+    // so the same comments can be imported again.
+    List<Key> summaryKeys = new ArrayList<>(BATCH_SIZE);
+    summaryKeys.addAll(RatingHistogram.keys());
+    for (String kind : new String[] {CommentRollupCodec.KIND, CommentImporter.KIND}) {
+      Query kindQuery = new Query(kind).setKeysOnly();
+      for (Entity entity : datastore.prepare(kindQuery).asIterable(FetchOptions.Builder.withChunkSize(BATCH_SIZE))) {
+        summaryKeys.add(entity.getKey());
+        if (summaryKeys.size() == BATCH_SIZE) {
+          if (pendingDeletes.size() == MAX_DELETES_IN_FLIGHT) {
+            deleted += pendingDeletes.remove().await();
+          }
+          pendingDeletes.add(new PendingDelete(datastore.delete(summaryKeys), 0));
+          summaryKeys = new ArrayList<>(BATCH_SIZE);
+        }
+      }
+    }
+    if (!summaryKeys.isEmpty()) {
+      pendingDeletes.add(new PendingDelete(datastore.delete(summaryKeys), 0));
+    }
+    while (!pendingDeletes.isEmpty()) {
+      deleted += pendingDeletes.remove().await();
+    }
+    version.increment();
+    progress.accept(deleted);
+    return deleted;
+  }
+
+  // Waits for a datastore batch get to finish and returns the entities that exist.
+  private static Map<Key, Entity> await(Future<Map<Key, Entity>> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DatastoreFailureException("Interrupted while reading from the datastore", e);
+    } catch (ExecutionException e) {
+      throw new DatastoreFailureException("Failed to read from the datastore", e.getCause());
+    }
+  }
+
+  // A batch delete that was sent to the datastore and may not have finished yet.
+  private static class PendingDelete {
+    private final Future<Void> future;
+    private final int size;
+
+    PendingDelete(Future<Void> future, int size) {
+      this.future = future;
+      this.size = size;
+    }
+
+    // Waits for the batch delete to finish and returns the number of comments it deleted.
+    int await() {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new DatastoreFailureException("Interrupted while deleting comments", e);
+      } catch (ExecutionException e) {
+        throw new DatastoreFailureException("Failed to delete comments", e.getCause());
+      }
+      return size;
+    }
+  }
+}
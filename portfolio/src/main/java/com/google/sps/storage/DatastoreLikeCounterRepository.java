@@ -0,0 +1,77 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import com.google.appengine.api.datastore.AsyncDatastoreService;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/** Stores the like counters as sharded LikedItem entities in the datastore, in the format of LikedItemShards. */
+public final class DatastoreLikeCounterRepository implements LikeCounterRepository {
+
+  private final DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+  private final AsyncDatastoreService asyncDatastore = DatastoreServiceFactory.getAsyncDatastoreService();
+
+  @Override
+  public Future<Void> increment(Collection<String> items) {
+    // An item liked by several comments of a batch appears once per comment.
+    Map<String, Long> likesByItem = new HashMap<>();
+    for (String item : items) {
+      likesByItem.merge(item, 1L, Long::sum);
+    }
+
+    return new DeferredFuture<>(() -> {
+      Transactions.run(datastore, transaction -> {
+        int shard = ThreadLocalRandom.current().nextInt(LikedItemShards.SHARD_COUNT);
+        List<Key> keys = new ArrayList<>();
+        for (String item : likesByItem.keySet()) {
+          keys.add(LikedItemShards.key(item, shard));
+        }
+        Map<Key, Entity> shards = datastore.get(transaction, keys);
+        List<Entity> updated = new ArrayList<>();
+        for (Map.Entry<String, Long> likes : likesByItem.entrySet()) {
+          Key key = LikedItemShards.key(likes.getKey(), shard);
+          Entity entity = shards.containsKey(key) ? shards.get(key) : LikedItemShards.newEntity(key, likes.getKey());
+          LikedItemShards.add(entity, likes.getValue());
+          updated.add(entity);
+        }
+        datastore.put(transaction, updated);
+        return null;
+      });
+      return null;
+    });
+  }
+
+  @Override
+  public Map<String, Long> getCounts() {
+    Map<String, Long> likesCounters = new HashMap<>();
+    for (Entity entity : asyncDatastore.prepare(new Query(LikedItemShards.KIND)).asIterable()) {
+      String itemName = (String) entity.getProperty("itemName");
+      long count = (long) entity.getProperty("count");
+      likesCounters.merge(itemName, count, Long::sum);
+    }
+    return likesCounters;
+  }
+}
@@ -0,0 +1,52 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import com.google.appengine.api.datastore.AsyncDatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.KeyFactory;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/** Stores the nicknames as UserInfo entities in the datastore, keyed by user id. */
+public final class DatastoreUserInfoRepository implements UserInfoRepository {
+
+  private final AsyncDatastoreService datastore = DatastoreServiceFactory.getAsyncDatastoreService();
+
+  @Override
+  public Future<String> findNickname(String userId) {
+    Future<Entity> userInfoFuture = datastore.get(KeyFactory.createKey("UserInfo", userId));
+    return new DeferredFuture<>(() -> {
+      try {
+        return (String) userInfoFuture.get().getProperty("nickname");
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof EntityNotFoundException) {
+          return null;
+        }
+        throw e;
+      }
+    });
+  }
+
+  @Override
+  public void setNickname(String userId, String nickname) {
+    Entity entity = new Entity("UserInfo", userId);
+    entity.setProperty("id", userId);
+    entity.setProperty("nickname", nickname);
+    DatastoreServiceFactory.getDatastoreService().put(entity);
+  }
+}
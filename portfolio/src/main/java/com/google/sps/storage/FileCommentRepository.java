@@ -0,0 +1,165 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import com.google.sps.data.Comment;
+import com.google.sps.data.CommentCodec;
+import com.google.sps.data.CommentRollup;
+import com.google.sps.data.RollupPeriod;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.LongConsumer;
+
+/**
+ * Keeps the comments in memory and records every change in an append-only file,
+ * which is replayed when the repository is created.
+ */
+public final class FileCommentRepository implements CommentRepository {
+
+  private final InMemoryCommentRepository memory;
+  private final LikeCounterRepository likeCounters;
+  private final AppendOnlyLog<Record> log;
+
+  public FileCommentRepository(Path path, LikeCounterRepository likeCounters) {
+    // The likes of submitted comments are recorded by the like counters, and not counted again when replaying.
+    this.memory = new InMemoryCommentRepository(likeCounters);
+    this.likeCounters = likeCounters;
+    log = new AppendOnlyLog<>(path, Record.class, this::replay);
+  }
+
+  @Override
+  public Future<Long> add(Comment comment) {
+    long id = memory.nextId();
+    log.append(Record.added(id, 0, comment));
+    memory.restore(id, comment);
+    return CompletableFuture.completedFuture(id);
+  }
+
+  @Override
+  public Future<Boolean> addSubmitted(long submissionId, Comment comment) {
+    return CompletableFuture.completedFuture(storeSubmitted(submissionId, comment));
+  }
+
+  @Override
+  public List<Comment> list(int limit, Integer rate, String likedItem) {
+    return memory.list(limit, rate, likedItem);
+  }
+
+  @Override
+  public List<Comment> search(String query, int limit) {
+    return memory.search(query, limit);
+  }
+
+  @Override
+  public int importAll(List<Comment> comments) {
+    int imported = 0;
+    for (Comment comment : comments) {
+      if (storeSubmitted(CommentCodec.importId(comment), comment)) {
+        imported++;
+      }
+    }
+    return imported;
+  }
+
+  @Override
+  public CommentPage scan(String cursor, int limit) {
+    return memory.scan(cursor, limit);
+  }
+
+  @Override
+  public Map<Integer, Long> getRatingHistogram() {
+    return memory.getRatingHistogram();
+  }
+
+  @Override
+  public List<CommentRollup> getRollups(RollupPeriod period, long end, int count) {
+    return memory.getRollups(period, end, count);
+  }
+
+  @Override
+  public long getVersion() {
+    return memory.getVersion();
+  }
+
+  @Override
+  public long deleteAll(LongConsumer progress) {
+    log.append(Record.deletedAll());
+    return memory.deleteAll(progress);
+  }
+
+  // Stores a submitted or imported comment and counts its likes, unless it was already stored, and returns true if
+  // it was stored by this call.
+  private boolean storeSubmitted(long submissionId, Comment comment) {
+    if (!memory.markSubmitted(submissionId)) {
+      return false;
+    }
+    long id = memory.nextId();
+    log.append(Record.added(id, submissionId, comment));
+    memory.restore(id, comment);
+    likeCounters.increment(CommentCodec.likedItems(CommentCodec.likedMask(comment)));
+    return true;
+  }
+
+  private void replay(Record record) {
+    if (record.deletedAll) {
+      memory.deleteAll(deleted -> {});
+    } else {
+      Comment comment = new Comment.Builder(record.timestamp)
+          .byAuthor(record.author)
+          .rated(record.rate)
+          .likedSharedOptions(CommentCodec.likedLabels(record.liked))
+          .textWritten(record.text)
+          .build();
+      memory.restore(record.id, comment);
+      if (record.submissionId != 0) {
+        memory.markSubmitted(record.submissionId);
+      }
+    }
+  }
+
+  // A line of the log: either a comment that was added, or the deletion of all comments.
+  private static class Record {
+    private boolean deletedAll;
+    private long id;
+    // The id the comment was submitted or imported with, or 0 if it was added without one.
+    private long submissionId;
+    private String author;
+    private int rate;
+    private int liked;
+    private String text;
+    private long timestamp;
+
+    static Record added(long id, long submissionId, Comment comment) {
+      Record record = new Record();
+      record.id = id;
+      record.submissionId = submissionId;
+      record.author = comment.getAuthor();
+      record.rate = comment.getRate();
+      record.liked = CommentCodec.likedMask(comment);
+      record.text = comment.getText();
+      record.timestamp = comment.getTimestamp();
+      return record;
+    }
+
+    static Record deletedAll() {
+      Record record = new Record();
+      record.deletedAll = true;
+      return record;
+    }
+  }
+}
@@ -0,0 +1,60 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * Keeps the like counters in memory and records every like in an append-only file,
+ * which is replayed when the repository is created.
+ */
+public final class FileLikeCounterRepository implements LikeCounterRepository {
+
+  private final InMemoryLikeCounterRepository memory = new InMemoryLikeCounterRepository();
+  private final AppendOnlyLog<Record> log;
+
+  public FileLikeCounterRepository(Path path) {
+    log = new AppendOnlyLog<>(path, Record.class,
+        record -> memory.increment(Collections.singletonList(record.item)));
+  }
+
+  @Override
+  public Future<Void> increment(Collection<String> items) {
+    for (String item : items) {
+      log.append(new Record(item));
+    }
+    memory.increment(items);
+    return CompletableFuture.completedFuture(null);
+  }
+
+  @Override
+  public Map<String, Long> getCounts() {
+    return memory.getCounts();
+  }
+
+  // A line of the log: one like of an item.
+  private static class Record {
+    private final String item;
+
+    Record(String item) {
+      this.item = item;
+    }
+  }
+}
@@ -0,0 +1,54 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import java.nio.file.Path;
+import java.util.concurrent.Future;
+
+/**
+ * Keeps the nicknames in memory and records every change in an append-only file,
+ * which is replayed when the repository is created.
+ */
+public final class FileUserInfoRepository implements UserInfoRepository {
+
+  private final InMemoryUserInfoRepository memory = new InMemoryUserInfoRepository();
+  private final AppendOnlyLog<Record> log;
+
+  public FileUserInfoRepository(Path path) {
+    log = new AppendOnlyLog<>(path, Record.class, record -> memory.setNickname(record.userId, record.nickname));
+  }
+
+  @Override
+  public Future<String> findNickname(String userId) {
+    return memory.findNickname(userId);
+  }
+
+  @Override
+  public void setNickname(String userId, String nickname) {
+    log.append(new Record(userId, nickname));
+    memory.setNickname(userId, nickname);
+  }
+
+  // A line of the log: the nickname a user has set.
+  private static class Record {
+    private final String userId;
+    private final String nickname;
+
+    Record(String userId, String nickname) {
+      this.userId = userId;
+      this.nickname = nickname;
+    }
+  }
+}
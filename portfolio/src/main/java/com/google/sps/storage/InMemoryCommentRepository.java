@@ -0,0 +1,230 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import com.google.sps.data.Comment;
+import com.google.sps.data.CommentCodec;
+import com.google.sps.data.CommentRollup;
+import com.google.sps.data.CommentSearchIndex;
+import com.google.sps.data.RatingHistogram;
+import com.google.sps.data.RollupPeriod;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+
+/**
+ * Keeps the comments in memory without locking, apart from the search index. Ids increase in the order comments are added,
+ * so the newest comments are the ones with the highest ids. Submitted comments are remembered by their
+ * submission id, and their likes are counted in the given like counters.
+ */
+public final class InMemoryCommentRepository implements CommentRepository {
+
+  private final ConcurrentSkipListMap<Long, Comment> comments = new ConcurrentSkipListMap<>();
+  private final CommentSearchIndex searchIndex = new CommentSearchIndex();
+  private final AtomicLong lastId = new AtomicLong();
+  private final Set<Long> submissionIds = ConcurrentHashMap.newKeySet();
+  private final LikeCounterRepository likeCounters;
+  // Starts from the current time, so versions keep increasing across restarts.
+  private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+  // The number of comments given each rate, indexed by rate minus MIN_RATE.
+  private final AtomicLongArray rateCounts =
+      new AtomicLongArray(RatingHistogram.MAX_RATE - RatingHistogram.MIN_RATE + 1);
+  // The rollups of every period comments were posted in, by period start.
+  private final Map<RollupPeriod, ConcurrentHashMap<Long, Rollup>> rollups = new EnumMap<>(RollupPeriod.class);
+
+  public InMemoryCommentRepository(LikeCounterRepository likeCounters) {
+    this.likeCounters = likeCounters;
+    for (RollupPeriod period : RollupPeriod.values()) {
+      rollups.put(period, new ConcurrentHashMap<>());
+    }
+  }
+
+  @Override
+  public Future<Long> add(Comment comment) {
+    long id = nextId();
+    restore(id, comment);
+    return CompletableFuture.completedFuture(id);
+  }
+
+  @Override
+  public Future<Boolean> addSubmitted(long submissionId, Comment comment) {
+    return CompletableFuture.completedFuture(storeSubmitted(submissionId, comment));
+  }
+
+  @Override
+  public List<Comment> list(int limit, Integer rate, String likedItem) {
+    List<Comment> matches = new ArrayList<>();
+    for (Comment comment : comments.descendingMap().values()) {
+      if (matches.size() >= limit) {
+        break;
+      }
+      if ((rate == null || comment.getRate() == rate)
+          && (likedItem == null || CommentCodec.isLiked(comment, likedItem))) {
+        matches.add(comment);
+      }
+    }
+    return matches;
+  }
+
+  @Override
+  public List<Comment> search(String query, int limit) {
+    return searchIndex.search(query, limit);
+  }
+
+  @Override
+  public int importAll(List<Comment> comments) {
+    int imported = 0;
+    for (Comment comment : comments) {
+      if (storeSubmitted(CommentCodec.importId(comment), comment)) {
+        imported++;
+      }
+    }
+    return imported;
+  }
+
+  @Override
+  public CommentPage scan(String cursor, int limit) {
+    // In the order of the ids, so the cursor is the id of the last comment returned.
+    Map<Long, Comment> remaining = cursor == null ? comments : comments.tailMap(Long.parseLong(cursor), false);
+    List<Comment> page = new ArrayList<>(limit);
+    long lastId = 0;
+    for (Map.Entry<Long, Comment> entry : remaining.entrySet()) {
+      if (page.size() == limit) {
+        return new CommentPage(page, String.valueOf(lastId));
+      }
+      page.add(entry.getValue());
+      lastId = entry.getKey();
+    }
+    return new CommentPage(page, null);
+  }
+
+  @Override
+  public Map<Integer, Long> getRatingHistogram() {
+    Map<Integer, Long> counts = new LinkedHashMap<>();
+    for (int rate = RatingHistogram.MIN_RATE; rate <= RatingHistogram.MAX_RATE; rate++) {
+      counts.put(rate, rateCounts.get(rate - RatingHistogram.MIN_RATE));
+    }
+    return counts;
+  }
+
+  @Override
+  public List<CommentRollup> getRollups(RollupPeriod period, long end, int count) {
+    Map<Long, Rollup> periodRollups = rollups.get(period);
+    List<CommentRollup> result = new ArrayList<>(count);
+    long start = period.startOf(end) - (count - 1) * period.getMillis();
+    for (int i = 0; i < count; i++, start += period.getMillis()) {
+      Rollup rollup = periodRollups.get(start);
+      result.add(rollup == null ? new Rollup().toCommentRollup(start) : rollup.toCommentRollup(start));
+    }
+    return result;
+  }
+
+  @Override
+  public long getVersion() {
+    return version.get();
+  }
+
+  @Override
+  public long deleteAll(LongConsumer progress) {
+    long deleted = 0;
+    // Remove the comments one by one so comments added meanwhile are either counted or kept.
+    while (comments.pollFirstEntry() != null) {
+      deleted++;
+    }
+    submissionIds.clear();
+    searchIndex.clear();
+    for (int i = 0; i < rateCounts.length(); i++) {
+      rateCounts.set(i, 0);
+    }
+    for (Map<Long, Rollup> periodRollups : rollups.values()) {
+      periodRollups.clear();
+    }
+    version.incrementAndGet();
+    progress.accept(deleted);
+    return deleted;
+  }
+
+  // Reserves an id for a new comment.
+  long nextId() {
+    return lastId.incrementAndGet();
+  }
+
+  // Records that the comment with the submission id is stored, and returns false if it already was.
+  boolean markSubmitted(long submissionId) {
+    return submissionIds.add(submissionId);
+  }
+
+  // Stores a submitted or imported comment and counts its likes, unless it was already stored, and returns true if
+  // it was stored by this call.
+  private boolean storeSubmitted(long submissionId, Comment comment) {
+    if (!markSubmitted(submissionId)) {
+      return false;
+    }
+    restore(nextId(), comment);
+    likeCounters.increment(CommentCodec.likedItems(CommentCodec.likedMask(comment)));
+    return true;
+  }
+
+  // Stores a comment with an id that was already assigned to it.
+  void restore(long id, Comment comment) {
+    lastId.accumulateAndGet(id, Math::max);
+    comments.put(id, comment);
+    searchIndex.add(id, comment);
+    int rate = comment.getRate();
+    if (rate >= RatingHistogram.MIN_RATE && rate <= RatingHistogram.MAX_RATE) {
+      rateCounts.incrementAndGet(rate - RatingHistogram.MIN_RATE);
+    }
+    for (RollupPeriod period : RollupPeriod.values()) {
+      rollups.get(period).computeIfAbsent(period.startOf(comment.getTimestamp()), start -> new Rollup()).add(comment);
+    }
+    version.incrementAndGet();
+  }
+
+  // The counters of the comments posted during one period.
+  private static final class Rollup {
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong rateSum = new AtomicLong();
+    // The likes of each item, in the order of CommentCodec.LIKED_ITEMS.
+    private final AtomicLongArray likes = new AtomicLongArray(CommentCodec.LIKED_ITEMS.length);
+
+    void add(Comment comment) {
+      count.incrementAndGet();
+      rateSum.addAndGet(comment.getRate());
+      for (int i = 0; i < CommentCodec.LIKED_ITEMS.length; i++) {
+        if (CommentCodec.isLiked(comment, CommentCodec.LIKED_ITEMS[i])) {
+          likes.incrementAndGet(i);
+        }
+      }
+    }
+
+    CommentRollup toCommentRollup(long start) {
+      Map<String, Long> likesByItem = new LinkedHashMap<>();
+      for (int i = 0; i < CommentCodec.LIKED_ITEMS.length; i++) {
+        likesByItem.put(CommentCodec.LIKED_ITEMS[i], likes.get(i));
+      }
+      return new CommentRollup(start, count.get(), rateSum.get(), likesByItem);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Keeps the like counters in memory without locking. */
+public final class InMemoryLikeCounterRepository implements LikeCounterRepository {
+
+  private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+  @Override
+  public Future<Void> increment(Collection<String> items) {
+    for (String item : items) {
+      counters.computeIfAbsent(item, key -> new LongAdder()).increment();
+    }
+    return CompletableFuture.completedFuture(null);
+  }
+
+  @Override
+  public Map<String, Long> getCounts() {
+    Map<String, Long> counts = new HashMap<>();
+    counters.forEach((item, counter) -> counts.put(item, counter.sum()));
+    return counts;
+  }
+}
@@ -0,0 +1,39 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+/** Keeps the nicknames in memory without locking. */
+public final class InMemoryUserInfoRepository implements UserInfoRepository {
+
+  private final ConcurrentHashMap<String, String> nicknames = new ConcurrentHashMap<>();
+
+  @Override
+  public Future<String> findNickname(String userId) {
+    return CompletableFuture.completedFuture(nicknames.get(userId));
+  }
+
+  @Override
+  public void setNickname(String userId, String nickname) {
+    if (nickname == null) {
+      nicknames.remove(userId);
+    } else {
+      nicknames.put(userId, nickname);
+    }
+  }
+}
@@ -0,0 +1,29 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/** Stores how many times each item on the portfolio page was liked. */
+public interface LikeCounterRepository {
+
+  /** Starts adding one like for each occurrence of an item and returns a future that is done once they were added. */
+  Future<Void> increment(Collection<String> items);
+
+  /** Returns the number of likes of every item that was liked at least once. */
+  Map<String, Long> getCounts();
+}
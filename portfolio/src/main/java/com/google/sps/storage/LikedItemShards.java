@@ -0,0 +1,49 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+
+/**
+ * The like counter of each item, split into SHARD_COUNT LikedItem entities named after the item and the shard.
+ * Each write adds to a random shard, so concurrent writes rarely update the same entity. An item's count is the
+ * sum of the "count" of all LikedItem entities with its "itemName", which includes the single auto-id entity
+ * each item was counted in before the counters were sharded.
+ */
+final class LikedItemShards {
+
+  static final String KIND = "LikedItem";
+  static final int SHARD_COUNT = 10;
+
+  private LikedItemShards() {}
+
+  static Key key(String item, int shard) {
+    return KeyFactory.createKey(KIND, item + "-" + shard);
+  }
+
+  // Returns an entity for the shard of the item with the given key, with the count set to 0.
+  static Entity newEntity(Key key, String item) {
+    Entity entity = new Entity(key);
+    entity.setProperty("itemName", item);
+    entity.setUnindexedProperty("count", 0L);
+    return entity;
+  }
+
+  static void add(Entity entity, long likes) {
+    entity.setUnindexedProperty("count", (long) entity.getProperty("count") + likes);
+  }
+}
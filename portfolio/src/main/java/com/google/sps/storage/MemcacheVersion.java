@@ -0,0 +1,47 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+
+/**
+ * A version number shared by all server instances through memcache, increased whenever the data it versions
+ * changes. If memcache evicts it, it starts again from the current time in milliseconds, which is larger than
+ * any version handed out before unless the data changed more than once per millisecond on average.
+ */
+final class MemcacheVersion {
+
+  private final MemcacheService memcache = MemcacheServiceFactory.getMemcacheService();
+  private final String key;
+
+  MemcacheVersion(String key) {
+    this.key = key;
+  }
+
+  /** Returns the current version, or -1 if memcache is unavailable. */
+  long get() {
+    Object version = memcache.get(key);
+    if (version == null) {
+      // Start again from the current time, or read the version another instance just started, in one call.
+      version = memcache.increment(key, 0, System.currentTimeMillis());
+    }
+    return version == null ? -1 : (long) version;
+  }
+
+  void increment() {
+    memcache.increment(key, 1, System.currentTimeMillis());
+  }
+}
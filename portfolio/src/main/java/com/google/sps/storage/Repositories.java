@@ -0,0 +1,94 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Provides the repositories used by the servlets. The backend is chosen by the "portfolio.storage" system
+ * property: "datastore" (the default), "memory", or "file", which keeps append-only files in the directory
+ * named by the "portfolio.storage.dir" system property.
+ */
+public final class Repositories {
+
+  private static final String BACKEND = System.getProperty("portfolio.storage", "datastore");
+  private static final Path DIRECTORY = Paths.get(System.getProperty("portfolio.storage.dir", "portfolio-data"));
+
+  private Repositories() {}
+
+  public static CommentRepository comments() {
+    return CommentsHolder.INSTANCE;
+  }
+
+  public static LikeCounterRepository likeCounters() {
+    return LikeCountersHolder.INSTANCE;
+  }
+
+  public static UserInfoRepository userInfo() {
+    return UserInfoHolder.INSTANCE;
+  }
+
+  // Returns true if the data is kept in the App Engine datastore, which any unknown backend falls back to.
+  public static boolean usesDatastore() {
+    return !BACKEND.equals("memory") && !BACKEND.equals("file");
+  }
+
+  // Each repository is created the first time it is used.
+  private static class CommentsHolder {
+    static final CommentRepository INSTANCE = createComments();
+  }
+
+  private static class LikeCountersHolder {
+    static final LikeCounterRepository INSTANCE = createLikeCounters();
+  }
+
+  private static class UserInfoHolder {
+    static final UserInfoRepository INSTANCE = createUserInfo();
+  }
+
+  private static CommentRepository createComments() {
+    switch (BACKEND) {
+      case "memory":
+        return new InMemoryCommentRepository(likeCounters());
+      case "file":
+        return new FileCommentRepository(DIRECTORY.resolve("comments.log"), likeCounters());
+      default:
+        return new DatastoreCommentRepository();
+    }
+  }
+
+  private static LikeCounterRepository createLikeCounters() {
+    switch (BACKEND) {
+      case "memory":
+        return new InMemoryLikeCounterRepository();
+      case "file":
+        return new FileLikeCounterRepository(DIRECTORY.resolve("likes.log"));
+      default:
+        return new DatastoreLikeCounterRepository();
+    }
+  }
+
+  private static UserInfoRepository createUserInfo() {
+    switch (BACKEND) {
+      case "memory":
+        return new InMemoryUserInfoRepository();
+      case "file":
+        return new FileUserInfoRepository(DIRECTORY.resolve("users.log"));
+      default:
+        return new DatastoreUserInfoRepository();
+    }
+  }
+}
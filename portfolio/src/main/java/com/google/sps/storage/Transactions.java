@@ -0,0 +1,53 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Transaction;
+import com.google.appengine.api.datastore.TransactionOptions;
+import java.util.ConcurrentModificationException;
+import java.util.function.Function;
+
+/** Runs datastore transactions that are retried when they collide with other writes. */
+final class Transactions {
+
+  // The number of times a transaction runs when other transactions updated the same entities.
+  private static final int MAX_ATTEMPTS = 5;
+
+  private Transactions() {}
+
+  /**
+   * Runs work in a new cross-group transaction and commits it, running it again in a new transaction if the
+   * commit failed with a ConcurrentModificationException. The work must not have effects outside the transaction.
+   */
+  static <T> T run(DatastoreService datastore, Function<Transaction, T> work) {
+    for (int attempt = 1; ; attempt++) {
+      Transaction transaction = datastore.beginTransaction(TransactionOptions.Builder.withXG(true));
+      try {
+        T result = work.apply(transaction);
+        transaction.commit();
+        return result;
+      } catch (ConcurrentModificationException e) {
+        if (attempt == MAX_ATTEMPTS) {
+          throw e;
+        }
+      } finally {
+        if (transaction.isActive()) {
+          transaction.rollback();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,26 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.storage;
+
+import java.util.concurrent.Future;
+
+/** Stores the nicknames users have chosen. */
+public interface UserInfoRepository {
+
+  /** Starts looking up the nickname of the user and returns a future of it, which is null if none was set. */
+  Future<String> findNickname(String userId);
+
+  void setNickname(String userId, String nickname);
+}
@@ -0,0 +1,87 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.stream;
+
+import com.google.sps.data.Comment;
+import com.google.sps.json.Json;
+import com.google.sps.storage.Repositories;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Holds the newly posted comments that are sent to the clients polling /comments/stream as server-sent events.
+ * Each comment is serialized once into a log of recent events, which all the clients read from. With the
+ * datastore the log is kept in memcache, since comments are processed by task queue requests that may run on
+ * any instance. The requests waiting for a new comment are woken up when this instance publishes one, and check
+ * the log for comments published by other instances every CHECK_INTERVAL_MILLIS.
+ */
+public final class CommentStream {
+
+  private static final int LOG_CAPACITY = 256;
+  private static final long CHECK_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+  private static final EventLog events = Repositories.usesDatastore()
+      ? new MemcacheEventLog(LOG_CAPACITY) : new RingBufferEventLog(LOG_CAPACITY);
+  // The number of events published by this instance, which waiting requests are notified of.
+  private static final AtomicLong localPublishes = new AtomicLong();
+
+  private CommentStream() {}
+
+  // Sends the comment to all the waiting clients.
+  public static void publish(Comment comment) {
+    events.publish(Json.GSON.toJson(comment));
+    synchronized (localPublishes) {
+      localPublishes.incrementAndGet();
+      localPublishes.notifyAll();
+    }
+  }
+
+  // Returns the sequence number to stream after for a client that last received lastEventId, which may be null.
+  public static long resumeAfter(String lastEventId) {
+    long lastSequence = events.getLastSequence();
+    if (lastEventId != null) {
+      try {
+        // An id from before the log was lost may be ahead of its events.
+        return Math.min(Long.parseLong(lastEventId), lastSequence);
+      } catch (NumberFormatException e) {
+        // Not an id this stream sent - only send new comments.
+      }
+    }
+    return lastSequence;
+  }
+
+  /**
+   * Waits up to maxWaitMillis for events published after afterSequence and passes them to reader, oldest first.
+   * Returns the sequence number of the last event read, or afterSequence if none was published in time.
+   */
+  public static long awaitAfter(long afterSequence, long maxWaitMillis, ObjLongConsumer<String> reader)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    while (true) {
+      long publishes = localPublishes.get();
+      long read = events.readAfter(afterSequence, reader);
+      long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+      if (read != afterSequence || remainingMillis <= 0) {
+        return read;
+      }
+      // The log is read without holding the lock, and an event published meanwhile is not waited for.
+      synchronized (localPublishes) {
+        if (localPublishes.get() == publishes) {
+          localPublishes.wait(Math.min(remainingMillis, CHECK_INTERVAL_MILLIS));
+        }
+      }
+    }
+  }
+}
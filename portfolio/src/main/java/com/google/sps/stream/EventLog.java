@@ -0,0 +1,36 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.stream;
+
+import java.util.function.ObjLongConsumer;
+
+/**
+ * The recently published events, numbered in the order they were published. Each reader keeps the sequence
+ * number of the last event it read, and readers that fall behind skip the events that are no longer kept.
+ */
+interface EventLog {
+
+  /** Adds an event and returns its sequence number, or 0 if it could not be added. */
+  long publish(String data);
+
+  /** Returns the sequence number of the last published event, or 0 if none is known. */
+  long getLastSequence();
+
+  /**
+   * Passes the data and sequence number of the events published after afterSequence to reader, oldest first,
+   * and returns the sequence number of the last event read, or afterSequence if there was none.
+   */
+  long readAfter(long afterSequence, ObjLongConsumer<String> reader);
+}
@@ -0,0 +1,130 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.stream;
+
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Keeps the events in memcache, so an event published by any server instance is read by the requests of all of
+ * them. The sequence number is a memcache counter, and each event is stored under a key made of its number.
+ * <p>An event is numbered before it is stored, so a missing event may still be being written, and reading stops
+ * before it. It is skipped once an event published after it is older than LOST_EVENT_MILLIS, since it was then
+ * evicted or its publisher failed. The numbers below the one the counter started from were never used.
+ */
+final class MemcacheEventLog implements EventLog {
+
+  private static final String SEQUENCE_KEY = "comment-stream-sequence";
+  private static final String FIRST_SEQUENCE_KEY = "comment-stream-first-sequence";
+  private static final String EVENT_KEY_PREFIX = "comment-stream-event-";
+  private static final Expiration EVENT_EXPIRATION = Expiration.byDeltaSeconds((int) TimeUnit.MINUTES.toSeconds(10));
+  private static final long LOST_EVENT_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+  private final MemcacheService memcache = MemcacheServiceFactory.getMemcacheService();
+  private final int capacity;
+
+  MemcacheEventLog(int capacity) {
+    this.capacity = capacity;
+  }
+
+  @Override
+  public long publish(String data) {
+    // If memcache evicted the counter, it starts again from the current time, which keeps the numbers increasing.
+    long now = System.currentTimeMillis();
+    Long sequence = memcache.increment(SEQUENCE_KEY, 1, now);
+    if (sequence == null) {
+      return 0;
+    }
+    if (sequence == now + 1) {
+      // This call started the counter.
+      memcache.put(FIRST_SEQUENCE_KEY, sequence);
+    }
+    memcache.put(eventKey(sequence), new Event(System.currentTimeMillis(), data), EVENT_EXPIRATION);
+    return sequence;
+  }
+
+  @Override
+  public long getLastSequence() {
+    Object sequence = memcache.get(SEQUENCE_KEY);
+    return sequence == null ? 0 : (long) sequence;
+  }
+
+  @Override
+  public long readAfter(long afterSequence, ObjLongConsumer<String> reader) {
+    Map<String, Object> sequences = memcache.getAll(Arrays.asList(SEQUENCE_KEY, FIRST_SEQUENCE_KEY));
+    long last = sequences.containsKey(SEQUENCE_KEY) ? (long) sequences.get(SEQUENCE_KEY) : 0;
+    long first = Math.max(afterSequence + 1, last - capacity + 1);
+    if (sequences.containsKey(FIRST_SEQUENCE_KEY)) {
+      first = Math.max(first, (long) sequences.get(FIRST_SEQUENCE_KEY));
+    }
+    if (first > last) {
+      return afterSequence;
+    }
+    List<String> keys = new ArrayList<>();
+    for (long sequence = first; sequence <= last; sequence++) {
+      keys.add(eventKey(sequence));
+    }
+    Map<String, Object> events = memcache.getAll(keys);
+
+    long lostBefore = System.currentTimeMillis() - LOST_EVENT_MILLIS;
+    long read = afterSequence;
+    for (long sequence = first; sequence <= last; sequence++) {
+      Event event = (Event) events.get(eventKey(sequence));
+      if (event != null) {
+        reader.accept(event.data, sequence);
+      } else if (!hasEventPublishedBefore(events, sequence + 1, last, lostBefore)) {
+        // Still being written - a later read will get it.
+        break;
+      }
+      read = sequence;
+    }
+    return read;
+  }
+
+  // Returns true if an event numbered from first to last was published before the given time.
+  private static boolean hasEventPublishedBefore(Map<String, Object> events, long first, long last, long time) {
+    for (long sequence = first; sequence <= last; sequence++) {
+      Event event = (Event) events.get(eventKey(sequence));
+      if (event != null && event.publishedMillis < time) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String eventKey(long sequence) {
+    return EVENT_KEY_PREFIX + sequence;
+  }
+
+  private static final class Event implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long publishedMillis;
+    private final String data;
+
+    private Event(long publishedMillis, String data) {
+      this.publishedMillis = publishedMillis;
+      this.data = data;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.stream;
+
+import com.google.sps.data.EventRingBuffer;
+import java.util.function.ObjLongConsumer;
+
+/** Keeps the events in an EventRingBuffer, so only the requests served by this instance see them. */
+final class RingBufferEventLog implements EventLog {
+
+  private final EventRingBuffer events;
+
+  RingBufferEventLog(int capacity) {
+    this.events = new EventRingBuffer(capacity);
+  }
+
+  @Override
+  public long publish(String data) {
+    return events.publish(data);
+  }
+
+  @Override
+  public long getLastSequence() {
+    return events.getLastSequence();
+  }
+
+  @Override
+  public long readAfter(long afterSequence, ObjLongConsumer<String> reader) {
+    return events.readAfter(afterSequence, reader);
+  }
+}
@@ -33,9 +33,11 @@ function addRandomFact() {
 // Invoked when the page is loaded
 function preparePage() {
     getCommentsFromServer();
+    listenForNewComments();
     displayFormIfLoggedIn();
     drawActivitiesChart();
     drawCommentsDataChart();
+    drawCommentsTrendChart();
     createMap();
 }
  
@@ -45,23 +47,8 @@ function getCommentsFromServer() {
     fetch('/data?limit='+lim).then(response => response.json()).then((allComments) => {
     const totalEl = document.getElementById('comments-container');
     totalEl.innerHTML = '';
-    let commentStr = '';
         for (i = 0;i < allComments.length;i++) {
-            commentStr = "Author: " + allComments[i].author+": ";
-            commentStr += "Rate: " + allComments[i].rate+". ";
-            // If the list of the liked items is not empty - display the liked items. 
-            if ((allComments[i].likedOptions).length!==0) {
-                commentStr += "Liked: " + allComments[i].likedOptions+". ";
-            }
-            // If the comment includes text - display it.
-            if (allComments[i].text!=='') {
-                commentStr += "Comment: " + allComments[i].text;
-            }
-            commentEl = createPElement(commentStr);
-            commentEl.style.border = "thin solid gray";
-            commentEl.style.width = "650px";
-            commentEl.style.margin = "auto";
-            totalEl.appendChild(commentEl);
+            totalEl.appendChild(createCommentElement(allComments[i]));
         }
         if (allComments.length==0) {
             document.getElementById("deleteButton").disabled = true;
@@ -71,37 +58,94 @@ function getCommentsFromServer() {
         }
     });
 }
+
+// Listens for comments posted after the page was loaded and displays them on top of the list.
+// The server ends each request after a while and EventSource reconnects, resuming after the last event received.
+function listenForNewComments() {
+    const source = new EventSource('/comments/stream');
+    source.onmessage = (event) => {
+        const totalEl = document.getElementById('comments-container');
+        totalEl.insertBefore(createCommentElement(JSON.parse(event.data)), totalEl.firstChild);
+        // Keep displaying only the number of comments the user asked for.
+        const lim = document.getElementById("limit").value;
+        while (totalEl.childElementCount > lim) {
+            totalEl.removeChild(totalEl.lastChild);
+        }
+        document.getElementById("deleteButton").disabled = false;
+    };
+}
+
+// Creates the element displaying a single comment.
+function createCommentElement(comment) {
+    let commentStr = "Author: " + comment.author+": ";
+    commentStr += "Rate: " + comment.rate+". ";
+    // If the list of the liked items is not empty - display the liked items. 
+    if ((comment.likedOptions).length!==0) {
+        commentStr += "Liked: " + comment.likedOptions+". ";
+    }
+    // If the comment includes text - display it.
+    if (comment.text!=='') {
+        commentStr += "Comment: " + comment.text;
+    }
+    const commentEl = createPElement(commentStr);
+    commentEl.style.border = "thin solid gray";
+    commentEl.style.width = "650px";
+    commentEl.style.margin = "auto";
+    return commentEl;
+}
  
-// Fetch the login status from the servlet. If the user is logged in display comments form and a logout URL. Otherwise - display a login URL.
+// Fetch the login status and nickname in one request. If the user is logged in display comments form, the nickname and a logout URL. Otherwise - display a login URL.
 function displayFormIfLoggedIn() {
-    fetch('/login-info').then(response => response.text()).then((textRes) => {
-        // Parse the text from the response to an html page
-        const parser = new DOMParser();
-        const htmlRes = parser.parseFromString(textRes, "text/html");
-        
-        const isLoggedIn = htmlRes.getElementById('isLoggedIn').innerText;
+    fetch('/session').then(response => response.json()).then((session) => {
         // Display form and logout URL if logged in
-        if (isLoggedIn === "User is logged in") {
+        if (session.loggedIn) {
             document.getElementById("comments-form").style.display = "block";
-            const logoutUrl = htmlRes.getElementById("logoutUrl");
-            document.getElementById("comments-form").appendChild(logoutUrl);
-
-            // Get nickname information from the nickname servlet
-            fetch('/nickname').then(nicknameResponse => nicknameResponse.text()).then((textNickname) => {
-                // Parse the text from the response to an html page
-                const htmlNickname = parser.parseFromString(textNickname, "text/html");
-                const nicknameForm = htmlNickname.getElementById("nickname");
-                document.getElementById("nickname-setter").appendChild(nicknameForm);
-            });
-
+            document.getElementById("comments-form").appendChild(
+                createLinkParagraph("logoutUrl", "Logout ", session.logoutUrl, "."));
+            document.getElementById("nickname-setter").appendChild(createNicknameElement(session.nickname));
         }
         // Display login URL if not logged in
         else {
-            const loginUrl = htmlRes.getElementById("loginUrl");
-            document.getElementById("new-comment").appendChild(loginUrl);
+            document.getElementById("new-comment").appendChild(
+                createLinkParagraph("loginUrl", "Login ", session.loginUrl, " to leave a comment."));
         }
     });
 }
+
+// Create a paragraph with a link reading "here" between two texts
+function createLinkParagraph(id, textBefore, url, textAfter) {
+    const paragraph = document.createElement('p');
+    paragraph.id = id;
+    const link = document.createElement('a');
+    link.href = url;
+    link.innerText = "here";
+    paragraph.append(textBefore, link, textAfter);
+    return paragraph;
+}
+
+// Create a welcome message with the nickname, or the form to set one if the user has none
+function createNicknameElement(nickname) {
+    if (nickname) {
+        const welcome = document.createElement('p');
+        welcome.id = "nickname";
+        welcome.innerText = "Welcome back, " + nickname + "!";
+        return welcome;
+    }
+    const container = document.createElement('div');
+    container.id = "nickname";
+    const explanation = document.createElement('p');
+    explanation.innerText = "You can set a nickname here: (If you don't choose a nickname your email address will be displayed)";
+    const form = document.createElement('form');
+    form.method = "POST";
+    form.action = "/nickname";
+    const input = document.createElement('input');
+    input.name = "nickname";
+    const button = document.createElement('button');
+    button.innerText = "Submit";
+    form.append(input, document.createElement('br'), button);
+    container.append(explanation, form);
+    return container;
+}
  
 // Delete all comments from the server and remove them from the portfolio page
 function deleteComments() {
@@ -156,6 +200,32 @@ function drawCommentsDataChart() {
     });
 }
 
+// Draw the number of comments and their average rate over the last week
+function drawCommentsTrendChart() {
+    fetch('/chart?range=week').then(response => response.json())
+    .then((rollups) => {
+        const data = new google.visualization.DataTable();
+        data.addColumn('date', 'Day');
+        data.addColumn('number', 'Comments');
+        data.addColumn('number', 'Average rate');
+        rollups.forEach((rollup) => {
+            const averageRate = rollup.count > 0 ? rollup.rateSum / rollup.count : null;
+            data.addRow([new Date(rollup.start), rollup.count, averageRate]);
+        });
+
+        const options = {
+            'title': 'Comments This Week',
+            'width':600,
+            'height':500,
+            'series': {1: {'targetAxisIndex': 1}}
+        };
+
+        const chart = new google.visualization.LineChart(
+            document.getElementById('comments-trend-chart-container'));
+        chart.draw(data, options);
+    });
+}
+
 // Create the map and add it to the main page
 function createMap() {
     const map = new google.maps.Map(
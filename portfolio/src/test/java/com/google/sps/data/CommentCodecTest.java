@@ -0,0 +1,134 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityTranslator;
+import com.google.apphosting.api.ApiProxy;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CommentCodecTest {
+  @Before
+  public void setUp() {
+    // Entities only need the application id of the environment to create their keys.
+    ApiProxy.setEnvironmentForCurrentThread((ApiProxy.Environment) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {ApiProxy.Environment.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getAppId":
+              return "test";
+            case "getAttributes":
+              return new HashMap<String, Object>();
+            default:
+              return null;
+          }
+        }));
+  }
+
+  @After
+  public void tearDown() {
+    ApiProxy.clearEnvironmentForCurrentThread();
+  }
+
+  @Test
+  public void roundTrip() {
+    Comment expected = new Comment.Builder(1234)
+        .byAuthor("Ana")
+        .rated(4)
+        .likedTheseOptions(Arrays.asList("The facts", "Other"))
+        .textWritten("Nice facts")
+        .build();
+
+    Comment actual = CommentCodec.fromEntity(stored(CommentCodec.toEntity(expected)));
+
+    Assert.assertEquals(expected.getAuthor(), actual.getAuthor());
+    Assert.assertEquals(expected.getRate(), actual.getRate());
+    Assert.assertEquals(expected.getLikedOptions(), actual.getLikedOptions());
+    Assert.assertEquals(expected.getText(), actual.getText());
+    Assert.assertEquals(expected.getTimestamp(), actual.getTimestamp());
+  }
+
+  @Test
+  public void encodesWordsLongerThanTheIndexLimit() {
+    StringBuilder word = new StringBuilder();
+    for (int i = 0; i < 501; i++) {
+      word.append('漢');
+    }
+    Comment comment = new Comment.Builder(1234).byAuthor("Ana").textWritten("see " + word).build();
+
+    Entity entity = stored(CommentCodec.toEntity(comment));
+
+    Assert.assertEquals("see " + word, CommentCodec.fromEntity(entity).getText());
+    Assert.assertFalse(entity.isUnindexedProperty("tokens"));
+  }
+
+  @Test
+  public void migratesTheLegacyFormat() {
+    Entity legacy = new Entity(CommentCodec.KIND);
+    legacy.setProperty("author", "Ana");
+    legacy.setProperty("rate", 4);
+    legacy.setProperty("is_info_liked", "false");
+    legacy.setProperty("is_facts_liked", "true");
+    legacy.setProperty("is_gallery_liked", "false");
+    legacy.setProperty("is_other_liked", "false");
+    legacy.setProperty("text", "Nice facts");
+    legacy.setProperty("timestamp", 1234L);
+    Entity entity = stored(legacy);
+
+    Assert.assertTrue(CommentCodec.needsMigration(entity));
+    CommentCodec.migrate(entity);
+    entity = stored(entity);
+
+    Assert.assertFalse(CommentCodec.needsMigration(entity));
+    Assert.assertFalse(entity.hasProperty("is_facts_liked"));
+    Comment comment = CommentCodec.fromEntity(entity);
+    Assert.assertEquals(Arrays.asList("The facts"), comment.getLikedOptions());
+    Assert.assertEquals("Nice facts", comment.getText());
+  }
+
+  @Test
+  public void importIdDependsOnEveryField() {
+    Comment comment = new Comment.Builder(1234).byAuthor("Ana").rated(4).textWritten("Nice").build();
+    long id = CommentCodec.importId(comment);
+
+    Assert.assertEquals(id, CommentCodec.importId(
+        new Comment.Builder(1234).byAuthor("Ana").rated(4).textWritten("Nice").build()));
+    Assert.assertTrue(id > 0 && id < (1L << 53));
+    Assert.assertNotEquals(id, CommentCodec.importId(
+        new Comment.Builder(1235).byAuthor("Ana").rated(4).textWritten("Nice").build()));
+    Assert.assertNotEquals(id, CommentCodec.importId(
+        new Comment.Builder(1234).byAuthor("Ana").rated(5).textWritten("Nice").build()));
+    Assert.assertNotEquals(id, CommentCodec.importId(new Comment.Builder(1234).byAuthor("Ana").rated(4)
+        .likedTheseOptions(Arrays.asList("Other")).textWritten("Nice").build()));
+    // The author and the text are not simply concatenated.
+    Assert.assertNotEquals(id, CommentCodec.importId(
+        new Comment.Builder(1234).byAuthor("AnaN").rated(4).textWritten("ice").build()));
+  }
+
+  // Returns the entity as the datastore would return it, with the validation and conversions of storing it.
+  private static Entity stored(Entity entity) {
+    return EntityTranslator.createFromPb(EntityTranslator.convertToPb(entity));
+  }
+}
@@ -0,0 +1,157 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class CommentSearchIndexTest {
+  private static final Comment OLD_GALLERY =
+      comment(100, "Ana", "Nice gallery, the photos are great");
+  private static final Comment NEW_GALLERY =
+      comment(200, "Bob", "The galleries could use captions");
+  private static final Comment FACTS = comment(300, "Cleo", "Nice facts");
+
+  private CommentSearchIndex index;
+
+  @Before
+  public void setUp() {
+    index = new CommentSearchIndex();
+    index.add(1, OLD_GALLERY);
+    index.add(2, NEW_GALLERY);
+    index.add(3, FACTS);
+  }
+
+  @Test
+  public void wordMatchesWholeWordsOnly() {
+    Assert.assertEquals(Arrays.asList(OLD_GALLERY), index.search("gallery", 10));
+  }
+
+  @Test
+  public void prefixMatchesNewestFirst() {
+    Assert.assertEquals(Arrays.asList(NEW_GALLERY, OLD_GALLERY), index.search("GALL*", 10));
+  }
+
+  @Test
+  public void everyTermMustMatch() {
+    Assert.assertEquals(Arrays.asList(OLD_GALLERY), index.search("nice gall*", 10));
+  }
+
+  @Test
+  public void authorIsSearched() {
+    Assert.assertEquals(Arrays.asList(FACTS), index.search("cleo", 10));
+  }
+
+  @Test
+  public void limitKeepsTheNewest() {
+    Assert.assertEquals(Arrays.asList(FACTS), index.search("nice", 1));
+  }
+
+  @Test
+  public void nonPositiveLimitMatchesNothing() {
+    Assert.assertEquals(Collections.emptyList(), index.search("nice", 0));
+    Assert.assertEquals(Collections.emptyList(), index.search("nice", -1));
+  }
+
+  @Test
+  public void bareStarMatchesNothing() {
+    Assert.assertEquals(Collections.emptyList(), index.search("*", 10));
+    Assert.assertNull(CommentSearchIndex.queryToken("*"));
+  }
+
+  @Test
+  public void addingTwiceIsHarmless() {
+    index.add(3, FACTS);
+
+    Assert.assertEquals(Arrays.asList(FACTS, OLD_GALLERY), index.search("nice", 10));
+  }
+
+  @Test
+  public void clearRemovesEverything() {
+    index.clear();
+
+    Assert.assertEquals(Collections.emptyList(), index.search("nice", 10));
+  }
+
+  @Test
+  public void tokensAreWordsThenShortPrefixes() {
+    List<String> actual = CommentSearchIndex.searchTokens("Al", "Gallery");
+
+    Assert.assertEquals(
+        Arrays.asList("al", "gallery", "a*", "al*", "g*", "ga*", "gal*", "gall*", "galle*", "galler*"), actual);
+  }
+
+  @Test
+  public void longPrefixQueryUsesTheStoredPrefix() {
+    Assert.assertEquals("galler*", CommentSearchIndex.queryToken("gallerie*"));
+    Assert.assertTrue(CommentSearchIndex.searchTokens(null, "galleries").contains("galler*"));
+    Assert.assertFalse(CommentSearchIndex.matches(OLD_GALLERY, CommentSearchIndex.parseQuery("gallerie*")));
+  }
+
+  @Test
+  public void longWordTokensFitTheIndexLimit() {
+    // 501 characters of 3 bytes each, without any separator.
+    String word = repeat("漢", 501);
+
+    for (String token : CommentSearchIndex.searchTokens("author", word)) {
+      Assert.assertTrue(utf8Length(token) <= CommentSearchIndex.MAX_TOKEN_BYTES);
+    }
+    Assert.assertEquals(repeat("漢", 500), CommentSearchIndex.queryToken(word));
+    Assert.assertTrue(CommentSearchIndex.searchTokens(null, word).contains(CommentSearchIndex.queryToken(word)));
+  }
+
+  @Test
+  public void truncateKeepsSurrogatePairsWhole() {
+    // 376 characters of 4 bytes each: 375 fit in 1500 bytes.
+    String word = repeat("𝐀", 376);
+
+    String actual = CommentSearchIndex.truncate(word);
+
+    Assert.assertEquals(repeat("𝐀", 375), actual);
+    Assert.assertEquals(CommentSearchIndex.MAX_TOKEN_BYTES, utf8Length(actual));
+  }
+
+  @Test
+  public void shortWordsAreNotTruncated() {
+    String word = repeat("a", CommentSearchIndex.MAX_TOKEN_BYTES);
+
+    Assert.assertSame(word, CommentSearchIndex.truncate(word));
+  }
+
+  private static Comment comment(long timestamp, String author, String text) {
+    return new Comment.Builder(timestamp).byAuthor(author).textWritten(text).build();
+  }
+
+  private static String repeat(String text, int count) {
+    StringBuilder repeated = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      repeated.append(text);
+    }
+    return repeated.toString();
+  }
+
+  private static int utf8Length(String text) {
+    return text.getBytes(StandardCharsets.UTF_8).length;
+  }
+}
@@ -0,0 +1,122 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.metrics;
+
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the counts and the quantile error bound of {@link Histogram}. */
+@RunWith(JUnit4.class)
+public final class HistogramTest {
+  @Test
+  public void emptyHistogram() {
+    Histogram histogram = new Histogram();
+
+    Assert.assertEquals(0, histogram.getCount());
+    Assert.assertEquals(0, histogram.getSum());
+    Assert.assertEquals(0, histogram.getValueAtQuantile(0.5));
+  }
+
+  @Test
+  public void countsAndSumsValues() {
+    Histogram histogram = new Histogram();
+    histogram.record(10);
+    histogram.record(1000);
+    histogram.record(123456);
+
+    Assert.assertEquals(3, histogram.getCount());
+    Assert.assertEquals(124466, histogram.getSum());
+  }
+
+  @Test
+  public void smallValuesAreExact() {
+    Histogram histogram = new Histogram();
+    for (int value = 0; value < 64; value++) {
+      histogram.record(value);
+    }
+
+    for (int value = 0; value < 64; value++) {
+      Assert.assertEquals(value, histogram.getValueAtQuantile((value + 1) / 64.0));
+    }
+  }
+
+  @Test
+  public void largeValuesAreAtMostOneThirtySecondHigh() {
+    Random random = new Random(42);
+    for (int i = 0; i < 10000; i++) {
+      long value = random.nextLong() >>> (28 + random.nextInt(36));
+      Histogram histogram = new Histogram();
+      histogram.record(value);
+
+      assertWithin(value, histogram.getValueAtQuantile(1));
+    }
+  }
+
+  @Test
+  public void quantilesOfManyValues() {
+    Histogram histogram = new Histogram();
+    for (int value = 1; value <= 10000; value++) {
+      histogram.record(value);
+    }
+
+    assertWithin(5000, histogram.getValueAtQuantile(0.5));
+    assertWithin(9000, histogram.getValueAtQuantile(0.9));
+    assertWithin(9990, histogram.getValueAtQuantile(0.999));
+    Assert.assertEquals(1, histogram.getValueAtQuantile(0));
+    assertWithin(10000, histogram.getValueAtQuantile(1));
+  }
+
+  @Test
+  public void clampsValuesOutOfRange() {
+    Histogram histogram = new Histogram();
+    histogram.record(-5);
+    histogram.record(Long.MAX_VALUE);
+
+    Assert.assertEquals(0, histogram.getValueAtQuantile(0.5));
+    long max = (1L << 36) - 1;
+    Assert.assertEquals(max, histogram.getValueAtQuantile(1));
+    Assert.assertEquals(max, histogram.getSum());
+  }
+
+  @Test
+  public void recordsConcurrently() throws InterruptedException {
+    Histogram histogram = new Histogram();
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(() -> {
+        for (int value = 0; value < 10000; value++) {
+          histogram.record(value);
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(80000, histogram.getCount());
+    Assert.assertEquals(8L * 9999 * 10000 / 2, histogram.getSum());
+    assertWithin(9999, histogram.getValueAtQuantile(1));
+  }
+
+  // Asserts that the reported value is the expected one or at most 1 / 32 above it.
+  private static void assertWithin(long expected, long reported) {
+    Assert.assertTrue(expected + " reported as " + reported, reported >= expected);
+    Assert.assertTrue(expected + " reported as " + reported, reported <= expected + expected / 32);
+  }
+}
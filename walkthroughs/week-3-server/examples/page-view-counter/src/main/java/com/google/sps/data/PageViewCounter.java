@@ -0,0 +1,144 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.EntityNotFoundException;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Transaction;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Counts page views in a {@code LongAdder}, so counting a view never contends with other request threads, and
+ * periodically adds the views counted by this server instance to a counter in the datastore.
+ *
+ * <p>The datastore counter is split into {@link #SHARD_COUNT} {@code PageViewShard} entities and each flush adds
+ * to a random one, so instances flushing at the same time rarely update the same entity. The total is the sum of
+ * all shards, read back after every flush, plus the views of this instance that were not flushed yet.
+ */
+public final class PageViewCounter {
+
+  public static final String SHARD_KIND = "PageViewShard";
+  static final int SHARD_COUNT = 20;
+  // The number of times a flush is retried when another instance updated the same shard.
+  private static final int MAX_FLUSH_ATTEMPTS = 3;
+  private static final Logger logger = Logger.getLogger(PageViewCounter.class.getName());
+
+  private final DatastoreService datastore;
+  private final long flushIntervalMillis;
+  private final LongAdder unflushedViews = new LongAdder();
+  private final AtomicLong nextFlushMillis = new AtomicLong();
+  // The sum of all shards when they were last read.
+  private volatile long storedViews;
+
+  public PageViewCounter(DatastoreService datastore, long flushIntervalMillis) {
+    this.datastore = datastore;
+    this.flushIntervalMillis = flushIntervalMillis;
+  }
+
+  /**
+   * Counts one view and returns the total number of views. The request that finds the flush interval elapsed
+   * flushes the views counted by this instance; no other request waits for it.
+   */
+  public long increment() {
+    unflushedViews.increment();
+    long now = System.currentTimeMillis();
+    long flushMillis = nextFlushMillis.get();
+    if (now >= flushMillis && nextFlushMillis.compareAndSet(flushMillis, now + flushIntervalMillis)) {
+      try {
+        flush();
+      } catch (RuntimeException e) {
+        // The views are still counted, and the next flush tries again.
+        logger.log(Level.WARNING, "Could not flush " + unflushedViews.sum() + " page views", e);
+      }
+    }
+    return getTotal();
+  }
+
+  /** Returns the total number of views, as of the last flush of other instances. */
+  public long getTotal() {
+    return storedViews + unflushedViews.sum();
+  }
+
+  /**
+   * Adds the views counted since the last flush to a shard, then reads the sum of all shards. The views stay
+   * counted in memory if the shard could not be updated, and are added by the next flush.
+   */
+  public synchronized void flush() {
+    // Views counted meanwhile are left in the adder for the next flush, unlike with sumThenReset.
+    long views = unflushedViews.sum();
+    if (views > 0) {
+      addToShard(views);
+      // Moved to the stored views as soon as the shard holds them, so a failed read below cannot make the next
+      // flush add them again, and getTotal does not count them twice until the read.
+      unflushedViews.add(-views);
+      storedViews += views;
+    }
+    storedViews = readShards();
+  }
+
+  private void addToShard(long views) {
+    Key key = shardKey(ThreadLocalRandom.current().nextInt(SHARD_COUNT));
+    for (int attempt = 1; ; attempt++) {
+      Transaction transaction = datastore.beginTransaction();
+      try {
+        Entity shard;
+        try {
+          shard = datastore.get(transaction, key);
+        } catch (EntityNotFoundException e) {
+          shard = new Entity(key);
+          shard.setUnindexedProperty("count", 0L);
+        }
+        shard.setUnindexedProperty("count", (long) shard.getProperty("count") + views);
+        datastore.put(transaction, shard);
+        transaction.commit();
+        return;
+      } catch (ConcurrentModificationException e) {
+        if (attempt == MAX_FLUSH_ATTEMPTS) {
+          throw e;
+        }
+      } finally {
+        if (transaction.isActive()) {
+          transaction.rollback();
+        }
+      }
+    }
+  }
+
+  private long readShards() {
+    List<Key> keys = new ArrayList<>(SHARD_COUNT);
+    for (int i = 0; i < SHARD_COUNT; i++) {
+      keys.add(shardKey(i));
+    }
+    long total = 0;
+    for (Entity shard : datastore.get(keys).values()) {
+      total += (long) shard.getProperty("count");
+    }
+    return total;
+  }
+
+  private static Key shardKey(int index) {
+    return KeyFactory.createKey(SHARD_KIND, "shard-" + index);
+  }
+}
@@ -0,0 +1,75 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events in a sliding time window, kept as a ring of buckets that each count the events of one interval
+ * in a {@code LongAdder}. A bucket left from an earlier turn of the ring is replaced by a new one the first time
+ * an event falls in it, so counting never locks and old counts are never cleared in place.
+ */
+public final class SlidingWindowCounter {
+
+  private final long bucketMillis;
+  private final AtomicReferenceArray<Bucket> buckets;
+
+  /** Creates a counter of the events in the last {@code bucketCount} intervals of {@code bucketMillis}. */
+  public SlidingWindowCounter(int bucketCount, long bucketMillis) {
+    this.bucketMillis = bucketMillis;
+    buckets = new AtomicReferenceArray<>(bucketCount);
+  }
+
+  public void increment(long nowMillis) {
+    long interval = nowMillis / bucketMillis;
+    int slot = (int) (interval % buckets.length());
+    Bucket bucket = buckets.get(slot);
+    while (bucket == null || bucket.interval < interval) {
+      Bucket newBucket = new Bucket(interval);
+      if (buckets.compareAndSet(slot, bucket, newBucket)) {
+        bucket = newBucket;
+      } else {
+        bucket = buckets.get(slot);
+      }
+    }
+    // An event of an interval that has already been replaced is dropped.
+    if (bucket.interval == interval) {
+      bucket.count.increment();
+    }
+  }
+
+  /** Returns the number of events in the window ending at {@code nowMillis}. */
+  public long sum(long nowMillis) {
+    long interval = nowMillis / bucketMillis;
+    long sum = 0;
+    for (int slot = 0; slot < buckets.length(); slot++) {
+      Bucket bucket = buckets.get(slot);
+      if (bucket != null && bucket.interval > interval - buckets.length() && bucket.interval <= interval) {
+        sum += bucket.count.sum();
+      }
+    }
+    return sum;
+  }
+
+  private static final class Bucket {
+    private final long interval;
+    private final LongAdder count = new LongAdder();
+
+    Bucket(long interval) {
+      this.interval = interval;
+    }
+  }
+}
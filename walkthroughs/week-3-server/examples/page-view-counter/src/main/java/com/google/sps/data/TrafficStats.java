@@ -0,0 +1,156 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The page views this server instance counted, in total, by path and by referrer, each with the number of views
+ * in the last minute and in the last hour.
+ *
+ * <p>At most {@link #MAX_KEYS} paths and referrers are counted separately, so that clients reporting random paths
+ * cannot exhaust the memory; the views of any others are counted under {@link #OTHER}.
+ */
+public final class TrafficStats {
+
+  public static final String OTHER = "(other)";
+  /** The referrer of requests that have none, like ones for a typed address or a bookmark. */
+  public static final String DIRECT = "(direct)";
+  static final int MAX_KEYS = 1000;
+  private static final int MAX_KEY_LENGTH = 200;
+
+  private static final TrafficStats INSTANCE = new TrafficStats();
+
+  private final Counter total = new Counter();
+  private final Map<String, Counter> paths = new ConcurrentHashMap<>();
+  private final Map<String, Counter> referrers = new ConcurrentHashMap<>();
+
+  public static TrafficStats getInstance() {
+    return INSTANCE;
+  }
+
+  /** Counts a request for the path from the referrer, which may be null. */
+  public void record(String path, String referrer, long nowMillis) {
+    total.increment(nowMillis);
+    counter(paths, path).increment(nowMillis);
+    counter(referrers, referrer == null ? DIRECT : withoutQuery(referrer)).increment(nowMillis);
+  }
+
+  public Count getTotal(long nowMillis) {
+    return total.toCount(null, nowMillis);
+  }
+
+  /** Returns the counts of each path, the most requested first. */
+  public List<Count> getPaths(long nowMillis) {
+    return toCounts(paths, nowMillis);
+  }
+
+  /** Returns the counts of each referrer, the most frequent first. */
+  public List<Count> getReferrers(long nowMillis) {
+    return toCounts(referrers, nowMillis);
+  }
+
+  private static Counter counter(Map<String, Counter> counters, String key) {
+    if (key.length() > MAX_KEY_LENGTH) {
+      key = key.substring(0, MAX_KEY_LENGTH);
+    }
+    Counter counter = counters.get(key);
+    if (counter != null) {
+      return counter;
+    }
+    // The limit may be passed by a few keys added concurrently, which is harmless.
+    if (counters.size() >= MAX_KEYS) {
+      key = OTHER;
+    }
+    return counters.computeIfAbsent(key, k -> new Counter());
+  }
+
+  // Referrers are grouped by page, regardless of the query string and the fragment.
+  private static String withoutQuery(String referrer) {
+    int end = referrer.length();
+    int query = referrer.indexOf('?');
+    if (query >= 0) {
+      end = query;
+    }
+    int fragment = referrer.indexOf('#');
+    if (fragment >= 0 && fragment < end) {
+      end = fragment;
+    }
+    return referrer.substring(0, end);
+  }
+
+  private static List<Count> toCounts(Map<String, Counter> counters, long nowMillis) {
+    List<Count> counts = new ArrayList<>(counters.size());
+    for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+      counts.add(entry.getValue().toCount(entry.getKey(), nowMillis));
+    }
+    counts.sort((a, b) -> Long.compare(b.getTotal(), a.getTotal()));
+    return counts;
+  }
+
+  /** The number of requests with a path or a referrer, in total and in the last minute and hour. */
+  public static final class Count {
+    private final String key;
+    private final long total;
+    private final long lastMinute;
+    private final long lastHour;
+
+    Count(String key, long total, long lastMinute, long lastHour) {
+      this.key = key;
+      this.total = total;
+      this.lastMinute = lastMinute;
+      this.lastHour = lastHour;
+    }
+
+    /** Returns the path or the referrer, or null for the total. */
+    public String getKey() {
+      return key;
+    }
+
+    public long getTotal() {
+      return total;
+    }
+
+    public long getLastMinute() {
+      return lastMinute;
+    }
+
+    public long getLastHour() {
+      return lastHour;
+    }
+  }
+
+  private static final class Counter {
+    private final LongAdder total = new LongAdder();
+    // A minute in buckets of a second, and an hour in buckets of a minute.
+    private final SlidingWindowCounter lastMinute = new SlidingWindowCounter(60, TimeUnit.SECONDS.toMillis(1));
+    private final SlidingWindowCounter lastHour = new SlidingWindowCounter(60, TimeUnit.MINUTES.toMillis(1));
+
+    void increment(long nowMillis) {
+      total.increment();
+      lastMinute.increment(nowMillis);
+      lastHour.increment(nowMillis);
+    }
+
+    Count toCount(String key, long nowMillis) {
+      return new Count(key, total.sum(), lastMinute.sum(nowMillis), lastHour.sum(nowMillis));
+    }
+  }
+}
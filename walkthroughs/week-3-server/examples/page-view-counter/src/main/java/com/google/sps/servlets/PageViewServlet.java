@@ -14,24 +14,40 @@
 
 package com.google.sps.servlets;
 
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.sps.data.PageViewCounter;
 import java.io.IOException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Servlet that returns HTML that contains the page view count. */
+/** Servlet that returns HTML that contains the page view count, counted across all server instances. */
 @WebServlet("/page-views")
 public class PageViewServlet extends HttpServlet {
 
-  private int pageViews = 0;
+  // How often each instance adds the views it counted to the datastore.
+  private static final long FLUSH_INTERVAL_MILLIS = 10_000;
+
+  private PageViewCounter pageViews;
+
+  @Override
+  public void init() {
+    pageViews = new PageViewCounter(DatastoreServiceFactory.getDatastoreService(), FLUSH_INTERVAL_MILLIS);
+  }
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    pageViews++;
+    long views = pageViews.increment();
 
     response.setContentType("text/html;");
     response.getWriter().println("<h1>Page Views</h1>");
-    response.getWriter().println("<p>This page has been viewed " + pageViews + " times.</p>");
+    response.getWriter().println("<p>This page has been viewed " + views + " times.</p>");
+  }
+
+  @Override
+  public void destroy() {
+    // Keep the views counted since the last flush when the instance shuts down.
+    pageViews.flush();
   }
 }
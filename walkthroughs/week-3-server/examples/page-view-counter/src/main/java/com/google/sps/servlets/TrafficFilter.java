@@ -0,0 +1,63 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.sps.data.TrafficStats;
+import java.io.IOException;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Filter counting page views by path and by referrer in this server instance. The counts are served by
+ * /page-views/stats.
+ *
+ * <p>Static pages are served without reaching the app, so they report their views with a beacon: a request for
+ * /page-views with the {@code path} of the page and the {@code referrer} it was opened from, which this filter
+ * answers itself. Any other request for /page-views is a view of that page, from the Referer header. Only
+ * /page-views is filtered, so polling /page-views/stats is not counted.
+ */
+@WebFilter("/page-views")
+public class TrafficFilter implements Filter {
+
+  @Override
+  public void init(FilterConfig filterConfig) {}
+
+  @Override
+  public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+      throws IOException, ServletException {
+    HttpServletRequest httpRequest = (HttpServletRequest) request;
+    String path = request.getParameter("path");
+    if (path != null && path.startsWith("/")) {
+      String referrer = request.getParameter("referrer");
+      TrafficStats.getInstance()
+          .record(path, referrer == null || referrer.isEmpty() ? null : referrer, System.currentTimeMillis());
+      ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_NO_CONTENT);
+      return;
+    }
+    TrafficStats.getInstance()
+        .record(httpRequest.getRequestURI(), httpRequest.getHeader("Referer"), System.currentTimeMillis());
+    chain.doFilter(request, response);
+  }
+
+  @Override
+  public void destroy() {}
+}
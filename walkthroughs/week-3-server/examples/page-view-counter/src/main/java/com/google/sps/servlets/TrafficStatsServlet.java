@@ -0,0 +1,95 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.modules.ModulesException;
+import com.google.appengine.api.modules.ModulesServiceFactory;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.data.TrafficStats;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet that returns the page views this server instance counted as JSON, in total, by path and by referrer,
+ * each with the number of views in the last minute and in the last hour.
+ *
+ * <p>The numbers cover one instance only: each instance counts the views it served, and they are not combined.
+ * When App Engine runs several instances, the views are split among them, and each request for the stats may be
+ * answered by a different one, so the response includes the id of the instance, which is null outside App
+ * Engine. The total across all instances is counted by {@code PageViewServlet}.
+ */
+@WebServlet("/page-views/stats")
+public class TrafficStatsServlet extends HttpServlet {
+
+  private String instanceId;
+
+  @Override
+  public void init() {
+    try {
+      instanceId = ModulesServiceFactory.getModulesService().getCurrentInstanceId();
+    } catch (ModulesException | IllegalStateException e) {
+      // Not running on App Engine.
+      instanceId = null;
+    }
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    TrafficStats stats = TrafficStats.getInstance();
+    long now = System.currentTimeMillis();
+
+    response.setContentType("application/json;");
+    response.setHeader("Cache-Control", "no-store");
+    try (JsonWriter json = new JsonWriter(response.getWriter())) {
+      json.beginObject();
+      json.name("instance").value(instanceId);
+      json.name("total");
+      writeCount(json, stats.getTotal(now));
+      json.name("paths");
+      writeCounts(json, "path", stats.getPaths(now));
+      json.name("referrers");
+      writeCounts(json, "referrer", stats.getReferrers(now));
+      json.endObject();
+    }
+  }
+
+  private static void writeCounts(JsonWriter json, String keyName, List<TrafficStats.Count> counts)
+      throws IOException {
+    json.beginArray();
+    for (TrafficStats.Count count : counts) {
+      json.beginObject();
+      json.name(keyName).value(count.getKey());
+      writeCountFields(json, count);
+      json.endObject();
+    }
+    json.endArray();
+  }
+
+  private static void writeCount(JsonWriter json, TrafficStats.Count count) throws IOException {
+    json.beginObject();
+    writeCountFields(json, count);
+    json.endObject();
+  }
+
+  private static void writeCountFields(JsonWriter json, TrafficStats.Count count) throws IOException {
+    json.name("total").value(count.getTotal());
+    json.name("lastMinute").value(count.getLastMinute());
+    json.name("lastHour").value(count.getLastHour());
+  }
+}
@@ -0,0 +1,103 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the window sums of {@link SlidingWindowCounter}. */
+@RunWith(JUnit4.class)
+public final class SlidingWindowCounterTest {
+  // A window of 4 intervals of 1000ms.
+  private static final int BUCKETS = 4;
+  private static final long BUCKET_MILLIS = 1000;
+
+  @Test
+  public void emptyCounterSumsToZero() {
+    Assert.assertEquals(0, new SlidingWindowCounter(BUCKETS, BUCKET_MILLIS).sum(12345));
+  }
+
+  @Test
+  public void sumsEventsInTheWindow() {
+    SlidingWindowCounter counter = new SlidingWindowCounter(BUCKETS, BUCKET_MILLIS);
+    counter.increment(0);
+    counter.increment(999);
+    counter.increment(1000);
+    counter.increment(3999);
+
+    Assert.assertEquals(4, counter.sum(3999));
+    // The first interval, 0 to 999, leaves the window at 4000.
+    Assert.assertEquals(2, counter.sum(4000));
+    Assert.assertEquals(1, counter.sum(5000));
+    Assert.assertEquals(0, counter.sum(7000));
+  }
+
+  @Test
+  public void ignoresEventsAfterTheWindow() {
+    SlidingWindowCounter counter = new SlidingWindowCounter(BUCKETS, BUCKET_MILLIS);
+    counter.increment(1000);
+    counter.increment(2000);
+
+    Assert.assertEquals(1, counter.sum(1500));
+    Assert.assertEquals(0, counter.sum(500));
+  }
+
+  @Test
+  public void reusesBucketsOnLaterTurnsOfTheRing() {
+    SlidingWindowCounter counter = new SlidingWindowCounter(BUCKETS, BUCKET_MILLIS);
+    counter.increment(500);
+    counter.increment(500);
+    // 4500 falls in the same slot as 500, one turn of the ring later, and replaces its count.
+    counter.increment(4500);
+
+    Assert.assertEquals(1, counter.sum(4500));
+    Assert.assertEquals(1, counter.sum(7999));
+    Assert.assertEquals(0, counter.sum(8000));
+  }
+
+  @Test
+  public void dropsEventsOfReplacedIntervals() {
+    SlidingWindowCounter counter = new SlidingWindowCounter(BUCKETS, BUCKET_MILLIS);
+    counter.increment(4500);
+    // A late event of the interval 4500 replaced is dropped rather than counted in the newer interval.
+    counter.increment(500);
+
+    Assert.assertEquals(1, counter.sum(4500));
+  }
+
+  @Test
+  public void countsConcurrentEvents() throws InterruptedException {
+    SlidingWindowCounter counter = new SlidingWindowCounter(BUCKETS, BUCKET_MILLIS);
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread = new Thread(() -> {
+        for (int j = 0; j < 10000; j++) {
+          counter.increment(j % 4000);
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(80000, counter.sum(3999));
+  }
+}
@@ -0,0 +1,324 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of the JVM read from the {@code java.lang.management} MXBeans: memory and memory pools, garbage
+ * collections, threads, CPU load, allocated bytes and safepoints. Values the JVM does not report are -1.
+ */
+public final class JvmStats {
+
+  // The safepoint counters are only exposed by the HotSpot internal runtime MXBean, which is reachable on Java 8
+  // but not on later versions, where the module system hides it.
+  private static final Object HOTSPOT_RUNTIME = hotspotRuntime();
+  private static final Method SAFEPOINT_COUNT = hotspotRuntimeMethod("getSafepointCount");
+  private static final Method SAFEPOINT_TIME = hotspotRuntimeMethod("getTotalSafepointTime");
+  private static final Method SAFEPOINT_SYNC_TIME = hotspotRuntimeMethod("getSafepointSyncTime");
+
+  private final MemoryUsage heap;
+  private final MemoryUsage nonHeap;
+  private final List<MemoryPool> memoryPools;
+  private final List<GarbageCollector> garbageCollectors;
+  private final int threadCount;
+  private final int daemonThreadCount;
+  private final int peakThreadCount;
+  private final Map<Thread.State, Integer> threadStates;
+  private final int availableProcessors;
+  private final double processCpuLoad;
+  private final double systemCpuLoad;
+  private final double systemLoadAverage;
+  private final long allocatedBytes;
+  private final long safepointCount;
+  private final long safepointTimeMillis;
+  private final long safepointSyncTimeMillis;
+
+  private JvmStats() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    heap = memory.getHeapMemoryUsage();
+    nonHeap = memory.getNonHeapMemoryUsage();
+
+    List<MemoryPool> pools = new ArrayList<>();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.isValid()) {
+        pools.add(new MemoryPool(pool.getName(), pool.getType() == MemoryType.HEAP, pool.getUsage()));
+      }
+    }
+    memoryPools = Collections.unmodifiableList(pools);
+
+    List<GarbageCollector> collectors = new ArrayList<>();
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      collectors.add(new GarbageCollector(collector.getName(), collector.getCollectionCount(),
+          collector.getCollectionTime(), lastPauseMillis(collector)));
+    }
+    garbageCollectors = Collections.unmodifiableList(collectors);
+
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    threadCount = threads.getThreadCount();
+    daemonThreadCount = threads.getDaemonThreadCount();
+    peakThreadCount = threads.getPeakThreadCount();
+    long[] threadIds = threads.getAllThreadIds();
+    Map<Thread.State, Integer> states = new EnumMap<>(Thread.State.class);
+    // Without stack traces, reading the thread states does not stop the threads.
+    for (ThreadInfo thread : threads.getThreadInfo(threadIds, 0)) {
+      if (thread != null) {
+        states.merge(thread.getThreadState(), 1, Integer::sum);
+      }
+    }
+    threadStates = Collections.unmodifiableMap(states);
+    allocatedBytes = allocatedBytes(threads, threadIds);
+
+    OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    availableProcessors = os.getAvailableProcessors();
+    systemLoadAverage = os.getSystemLoadAverage();
+    if (os instanceof com.sun.management.OperatingSystemMXBean) {
+      com.sun.management.OperatingSystemMXBean sunOs = (com.sun.management.OperatingSystemMXBean) os;
+      processCpuLoad = sunOs.getProcessCpuLoad();
+      systemCpuLoad = sunOs.getSystemCpuLoad();
+    } else {
+      processCpuLoad = -1;
+      systemCpuLoad = -1;
+    }
+
+    safepointCount = invokeHotspotRuntime(SAFEPOINT_COUNT);
+    safepointTimeMillis = invokeHotspotRuntime(SAFEPOINT_TIME);
+    safepointSyncTimeMillis = invokeHotspotRuntime(SAFEPOINT_SYNC_TIME);
+  }
+
+  /** Reads the current state of the JVM. */
+  public static JvmStats collect() {
+    return new JvmStats();
+  }
+
+  public MemoryUsage getHeap() {
+    return heap;
+  }
+
+  public MemoryUsage getNonHeap() {
+    return nonHeap;
+  }
+
+  public List<MemoryPool> getMemoryPools() {
+    return memoryPools;
+  }
+
+  public List<GarbageCollector> getGarbageCollectors() {
+    return garbageCollectors;
+  }
+
+  /** Returns the number of collections of all collectors. */
+  public long getCollectionCount() {
+    long count = 0;
+    for (GarbageCollector collector : garbageCollectors) {
+      count += Math.max(collector.getCollectionCount(), 0);
+    }
+    return count;
+  }
+
+  /** Returns the time all collectors spent collecting, in milliseconds. */
+  public long getCollectionTimeMillis() {
+    long time = 0;
+    for (GarbageCollector collector : garbageCollectors) {
+      time += Math.max(collector.getCollectionTimeMillis(), 0);
+    }
+    return time;
+  }
+
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  public int getDaemonThreadCount() {
+    return daemonThreadCount;
+  }
+
+  public int getPeakThreadCount() {
+    return peakThreadCount;
+  }
+
+  /** Returns the number of live threads in each state, leaving out the states no thread is in. */
+  public Map<Thread.State, Integer> getThreadStates() {
+    return threadStates;
+  }
+
+  public int getAvailableProcessors() {
+    return availableProcessors;
+  }
+
+  /** Returns the recent CPU usage of the JVM process, from 0 to 1. */
+  public double getProcessCpuLoad() {
+    return processCpuLoad;
+  }
+
+  /** Returns the recent CPU usage of the whole system, from 0 to 1. */
+  public double getSystemCpuLoad() {
+    return systemCpuLoad;
+  }
+
+  public double getSystemLoadAverage() {
+    return systemLoadAverage;
+  }
+
+  /**
+   * Returns the bytes allocated by the live threads since they started. Threads that ended are not included, so the
+   * value can decrease.
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  public long getSafepointCount() {
+    return safepointCount;
+  }
+
+  public long getSafepointTimeMillis() {
+    return safepointTimeMillis;
+  }
+
+  public long getSafepointSyncTimeMillis() {
+    return safepointSyncTimeMillis;
+  }
+
+  private static long lastPauseMillis(GarbageCollectorMXBean collector) {
+    if (collector instanceof com.sun.management.GarbageCollectorMXBean) {
+      com.sun.management.GcInfo gcInfo = ((com.sun.management.GarbageCollectorMXBean) collector).getLastGcInfo();
+      if (gcInfo != null) {
+        return gcInfo.getDuration();
+      }
+    }
+    return -1;
+  }
+
+  private static long allocatedBytes(ThreadMXBean threads, long[] threadIds) {
+    if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+    if (!sunThreads.isThreadAllocatedMemorySupported() || !sunThreads.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+    long total = 0;
+    for (long bytes : sunThreads.getThreadAllocatedBytes(threadIds)) {
+      // Threads that ended since their ids were read report -1.
+      if (bytes > 0) {
+        total += bytes;
+      }
+    }
+    return total;
+  }
+
+  private static Object hotspotRuntime() {
+    try {
+      Method method = Class.forName("sun.management.ManagementFactoryHelper").getMethod("getHotspotRuntimeMBean");
+      return method.invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+      return null;
+    }
+  }
+
+  private static Method hotspotRuntimeMethod(String name) {
+    if (HOTSPOT_RUNTIME == null) {
+      return null;
+    }
+    try {
+      return Class.forName("sun.management.HotspotRuntimeMBean").getMethod(name);
+    } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+      return null;
+    }
+  }
+
+  private static long invokeHotspotRuntime(Method method) {
+    if (method == null) {
+      return -1;
+    }
+    try {
+      return (long) method.invoke(HOTSPOT_RUNTIME);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return -1;
+    }
+  }
+
+  /** The memory used by a memory pool, like the eden space of the heap or the code cache outside of it. */
+  public static final class MemoryPool {
+    private final String name;
+    private final boolean heap;
+    private final MemoryUsage usage;
+
+    MemoryPool(String name, boolean heap, MemoryUsage usage) {
+      this.name = name;
+      this.heap = heap;
+      this.usage = usage;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public boolean isHeap() {
+      return heap;
+    }
+
+    public MemoryUsage getUsage() {
+      return usage;
+    }
+  }
+
+  /** The collections of a garbage collector since the JVM started. */
+  public static final class GarbageCollector {
+    private final String name;
+    private final long collectionCount;
+    private final long collectionTimeMillis;
+    private final long lastPauseMillis;
+
+    GarbageCollector(String name, long collectionCount, long collectionTimeMillis, long lastPauseMillis) {
+      this.name = name;
+      this.collectionCount = collectionCount;
+      this.collectionTimeMillis = collectionTimeMillis;
+      this.lastPauseMillis = lastPauseMillis;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getCollectionCount() {
+      return collectionCount;
+    }
+
+    public long getCollectionTimeMillis() {
+      return collectionTimeMillis;
+    }
+
+    /** Returns how long the last collection took, or -1 if it is unknown or there was none. */
+    public long getLastPauseMillis() {
+      return lastPauseMillis;
+    }
+  }
+}
@@ -14,21 +14,32 @@
 
 package com.google.sps.data;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
-/** Class containing server statistics. */
+/** Class containing server statistics, and optionally the JVM stats and their recent history. */
 public final class ServerStats {
 
   private final Date startTime;
   private final Date currentTime;
   private final long maxMemory;
   private final long usedMemory;
+  private final JvmStats jvm;
+  private final List<StatsSample> history;
 
   public ServerStats(Date startTime, Date currentTime, long maxMemory, long usedMemory) {
+    this(startTime, currentTime, maxMemory, usedMemory, null, Collections.emptyList());
+  }
+
+  public ServerStats(Date startTime, Date currentTime, long maxMemory, long usedMemory, JvmStats jvm,
+      List<StatsSample> history) {
     this.startTime = startTime;
     this.currentTime = currentTime;
     this.maxMemory = maxMemory;
     this.usedMemory = usedMemory;
+    this.jvm = jvm;
+    this.history = history;
   }
 
   public Date getStartTime() {
@@ -46,4 +57,13 @@ public final class ServerStats {
   public long getUsedMemory() {
     return usedMemory;
   }
+
+  /** Returns the JVM stats, or null if they were not collected. */
+  public JvmStats getJvm() {
+    return jvm;
+  }
+
+  public List<StatsSample> getHistory() {
+    return history;
+  }
 }
@@ -0,0 +1,61 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The latest samples of the server stats, kept in a fixed-size ring buffer so the history never grows. A sample
+ * is only added once {@code intervalMillis} passed since the previous one, however often the stats are read.
+ */
+public final class StatsHistory {
+
+  private final long intervalMillis;
+  private final StatsSample[] samples;
+  // The index the next sample is written to, and the number of samples in the buffer.
+  private int next;
+  private int size;
+
+  public StatsHistory(int capacity, long intervalMillis) {
+    this.intervalMillis = intervalMillis;
+    samples = new StatsSample[capacity];
+  }
+
+  /** Adds a sample of the stats if the interval passed since the last sample, and returns whether it did. */
+  public synchronized boolean offer(long time, JvmStats jvm) {
+    StatsSample last = getLast();
+    if (last != null && time - last.getTime() < intervalMillis) {
+      return false;
+    }
+    samples[next] = StatsSample.of(time, jvm, last);
+    next = (next + 1) % samples.length;
+    size = Math.min(size + 1, samples.length);
+    return true;
+  }
+
+  /** Returns the samples from the oldest to the latest. */
+  public synchronized List<StatsSample> getSamples() {
+    List<StatsSample> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      list.add(samples[(next - size + i + samples.length) % samples.length]);
+    }
+    return list;
+  }
+
+  private StatsSample getLast() {
+    return size == 0 ? null : samples[(next - 1 + samples.length) % samples.length];
+  }
+}
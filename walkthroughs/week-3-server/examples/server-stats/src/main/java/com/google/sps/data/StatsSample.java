@@ -0,0 +1,99 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+/**
+ * A point of the time series of server stats. Rates are measured since the previous sample, and are -1 for the
+ * first sample or when the JVM does not report the values they are computed from. Samples are only taken when the
+ * stats are requested, so the time since the previous sample varies, and is given with each sample.
+ */
+public final class StatsSample {
+
+  private final long time;
+  private final long elapsedMillis;
+  private final long heapUsed;
+  private final int threadCount;
+  private final double processCpuLoad;
+  private final long collectionCount;
+  private final long collectionTimeMillis;
+  private final long allocatedBytes;
+  private final double allocationRate;
+  private final double gcTimeRatio;
+
+  private StatsSample(long time, JvmStats jvm, StatsSample previous) {
+    this.time = time;
+    heapUsed = jvm.getHeap().getUsed();
+    threadCount = jvm.getThreadCount();
+    processCpuLoad = jvm.getProcessCpuLoad();
+    collectionCount = jvm.getCollectionCount();
+    collectionTimeMillis = jvm.getCollectionTimeMillis();
+    allocatedBytes = jvm.getAllocatedBytes();
+    elapsedMillis = previous == null ? -1 : time - previous.time;
+    if (elapsedMillis <= 0) {
+      allocationRate = -1;
+      gcTimeRatio = -1;
+    } else {
+      // The bytes of threads that ended are no longer counted, so the difference can be negative.
+      allocationRate = allocatedBytes < 0 || previous.allocatedBytes < 0
+          ? -1
+          : Math.max(allocatedBytes - previous.allocatedBytes, 0) * 1000.0 / elapsedMillis;
+      gcTimeRatio = (double) (collectionTimeMillis - previous.collectionTimeMillis) / elapsedMillis;
+    }
+  }
+
+  /** Samples the JVM stats taken at the given time, following the previous sample, which may be null. */
+  public static StatsSample of(long time, JvmStats jvm, StatsSample previous) {
+    return new StatsSample(time, jvm, previous);
+  }
+
+  public long getTime() {
+    return time;
+  }
+
+  /** Returns the milliseconds since the previous sample, which the rates are measured over, or -1 if none. */
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public long getHeapUsed() {
+    return heapUsed;
+  }
+
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  public double getProcessCpuLoad() {
+    return processCpuLoad;
+  }
+
+  public long getCollectionCount() {
+    return collectionCount;
+  }
+
+  public long getCollectionTimeMillis() {
+    return collectionTimeMillis;
+  }
+
+  /** Returns the bytes allocated per second since the previous sample. */
+  public double getAllocationRate() {
+    return allocationRate;
+  }
+
+  /** Returns the fraction of the time since the previous sample spent collecting garbage. */
+  public double getGcTimeRatio() {
+    return gcTimeRatio;
+  }
+}
@@ -0,0 +1,197 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.data.JvmStats;
+import com.google.sps.data.ServerStats;
+import com.google.sps.data.StatsSample;
+import java.io.IOException;
+import java.lang.management.MemoryUsage;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Converts a {@code ServerStats} to and from JSON. Times are written the same way as {@code Date.toString()},
+ * like the manual conversion in {@code ServerStatsServlet}. The JVM stats and their history are written after the
+ * fields of the manual conversion, leaving out values the JVM does not report, and are skipped when reading.
+ */
+final class ServerStatsTypeAdapter extends TypeAdapter<ServerStats> {
+
+  // The format of Date.toString().
+  private static final String DATE_PATTERN = "EEE MMM dd HH:mm:ss zzz yyyy";
+
+  @Override
+  public void write(JsonWriter out, ServerStats serverStats) throws IOException {
+    out.beginObject();
+    out.name("startTime").value(serverStats.getStartTime().toString());
+    out.name("currentTime").value(serverStats.getCurrentTime().toString());
+    out.name("maxMemory").value(serverStats.getMaxMemory());
+    out.name("usedMemory").value(serverStats.getUsedMemory());
+    if (serverStats.getJvm() != null) {
+      writeJvm(out, serverStats.getJvm());
+    }
+    if (!serverStats.getHistory().isEmpty()) {
+      out.name("history");
+      writeHistory(out, serverStats.getHistory());
+    }
+    out.endObject();
+  }
+
+  private static void writeJvm(JsonWriter out, JvmStats jvm) throws IOException {
+    out.name("heap");
+    writeMemoryUsage(out, jvm.getHeap());
+    out.name("nonHeap");
+    writeMemoryUsage(out, jvm.getNonHeap());
+
+    out.name("memoryPools").beginArray();
+    for (JvmStats.MemoryPool pool : jvm.getMemoryPools()) {
+      out.beginObject();
+      out.name("name").value(pool.getName());
+      out.name("type").value(pool.isHeap() ? "heap" : "nonHeap");
+      out.name("usage");
+      writeMemoryUsage(out, pool.getUsage());
+      out.endObject();
+    }
+    out.endArray();
+
+    out.name("garbageCollectors").beginArray();
+    for (JvmStats.GarbageCollector collector : jvm.getGarbageCollectors()) {
+      out.beginObject();
+      out.name("name").value(collector.getName());
+      writeIfKnown(out, "collectionCount", collector.getCollectionCount());
+      writeIfKnown(out, "collectionTimeMillis", collector.getCollectionTimeMillis());
+      writeIfKnown(out, "lastPauseMillis", collector.getLastPauseMillis());
+      out.endObject();
+    }
+    out.endArray();
+
+    out.name("threads").beginObject();
+    out.name("count").value(jvm.getThreadCount());
+    out.name("daemonCount").value(jvm.getDaemonThreadCount());
+    out.name("peakCount").value(jvm.getPeakThreadCount());
+    out.name("states").beginObject();
+    for (Map.Entry<Thread.State, Integer> state : jvm.getThreadStates().entrySet()) {
+      out.name(state.getKey().name()).value(state.getValue());
+    }
+    out.endObject();
+    out.endObject();
+
+    out.name("cpu").beginObject();
+    out.name("availableProcessors").value(jvm.getAvailableProcessors());
+    writeIfKnown(out, "processCpuLoad", jvm.getProcessCpuLoad());
+    writeIfKnown(out, "systemCpuLoad", jvm.getSystemCpuLoad());
+    writeIfKnown(out, "systemLoadAverage", jvm.getSystemLoadAverage());
+    out.endObject();
+
+    writeIfKnown(out, "allocatedBytes", jvm.getAllocatedBytes());
+
+    if (jvm.getSafepointCount() >= 0) {
+      out.name("safepoints").beginObject();
+      out.name("count").value(jvm.getSafepointCount());
+      writeIfKnown(out, "totalTimeMillis", jvm.getSafepointTimeMillis());
+      writeIfKnown(out, "syncTimeMillis", jvm.getSafepointSyncTimeMillis());
+      out.endObject();
+    }
+  }
+
+  private static void writeHistory(JsonWriter out, List<StatsSample> history) throws IOException {
+    out.beginArray();
+    for (StatsSample sample : history) {
+      out.beginObject();
+      out.name("time").value(sample.getTime());
+      writeIfKnown(out, "elapsedMillis", sample.getElapsedMillis());
+      out.name("heapUsed").value(sample.getHeapUsed());
+      out.name("threadCount").value(sample.getThreadCount());
+      writeIfKnown(out, "processCpuLoad", sample.getProcessCpuLoad());
+      out.name("collectionCount").value(sample.getCollectionCount());
+      out.name("collectionTimeMillis").value(sample.getCollectionTimeMillis());
+      writeIfKnown(out, "allocationRate", sample.getAllocationRate());
+      writeIfKnown(out, "gcTimeRatio", sample.getGcTimeRatio());
+      out.endObject();
+    }
+    out.endArray();
+  }
+
+  private static void writeMemoryUsage(JsonWriter out, MemoryUsage usage) throws IOException {
+    out.beginObject();
+    out.name("used").value(usage.getUsed());
+    out.name("committed").value(usage.getCommitted());
+    // The maximum is -1 when it is undefined.
+    writeIfKnown(out, "max", usage.getMax());
+    out.endObject();
+  }
+
+  private static void writeIfKnown(JsonWriter out, String name, long value) throws IOException {
+    if (value >= 0) {
+      out.name(name).value(value);
+    }
+  }
+
+  private static void writeIfKnown(JsonWriter out, String name, double value) throws IOException {
+    if (value >= 0 && !Double.isNaN(value)) {
+      out.name(name).value(value);
+    }
+  }
+
+  @Override
+  public ServerStats read(JsonReader in) throws IOException {
+    Date startTime = null;
+    Date currentTime = null;
+    long maxMemory = 0;
+    long usedMemory = 0;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "startTime":
+          startTime = parseDate(in.nextString());
+          break;
+        case "currentTime":
+          currentTime = parseDate(in.nextString());
+          break;
+        case "maxMemory":
+          maxMemory = in.nextLong();
+          break;
+        case "usedMemory":
+          usedMemory = in.nextLong();
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new ServerStats(startTime, currentTime, maxMemory, usedMemory);
+  }
+
+  private static Date parseDate(String date) {
+    // SimpleDateFormat is not thread-safe, so each call uses its own.
+    DateFormat format = new SimpleDateFormat(DATE_PATTERN, Locale.US);
+    try {
+      return format.parse(date);
+    } catch (ParseException e) {
+      throw new JsonSyntaxException("Invalid date: " + date, e);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.profiling;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds hot code by sampling the stacks of all threads with {@link ThreadMXBean#getThreadInfo(long[], int)} at a
+ * fixed interval, counting how many times each stack was seen.
+ *
+ * <p>Reading the stacks briefly pauses the JVM, so samples are spaced further apart than the interval whenever the
+ * time spent sampling would pass {@link #MAX_OVERHEAD} of the time profiled; the overhead stays bounded however
+ * many threads there are.
+ */
+public final class SamplingProfiler {
+
+  /** The largest fraction of the time spent taking samples. */
+  public static final double MAX_OVERHEAD = 0.01;
+  // Deeper stacks are cut to their innermost frames, losing their roots.
+  private static final int MAX_STACK_DEPTH = 128;
+
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final boolean onCpuOnly;
+  private final Map<String, Long> stackCounts = new HashMap<>();
+  private int sampleCount;
+  private long samplingNanos;
+
+  /**
+   * Creates a profiler counting only the threads running or ready to run if {@code onCpuOnly}, or all threads,
+   * including the ones waiting for locks, I/O or other threads.
+   */
+  public SamplingProfiler(boolean onCpuOnly) {
+    this.onCpuOnly = onCpuOnly;
+  }
+
+  /** Samples the stacks of the other threads until the duration has passed, then returns the profile. */
+  public Profile run(long durationMillis, long intervalMillis) throws InterruptedException {
+    long start = System.nanoTime();
+    long end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+    long self = Thread.currentThread().getId();
+    long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    long now = start;
+    while (now < end) {
+      long sampleStart = now;
+      sample(self);
+      // Wait for the interval, and for as long as it takes the time spent sampling to fall within the overhead.
+      long next = Math.max(sampleStart + intervalNanos, start + (long) (samplingNanos / MAX_OVERHEAD));
+      now = System.nanoTime();
+      TimeUnit.NANOSECONDS.sleep(Math.min(next, end) - now);
+      now = System.nanoTime();
+    }
+    return new Profile(stackCounts, sampleCount, now - start, samplingNanos);
+  }
+
+  // Counts the stack of every thread but the profiler's.
+  private void sample(long self) {
+    long start = System.nanoTime();
+    long[] threadIds = threads.getAllThreadIds();
+    if (onCpuOnly) {
+      // Reading the states is much cheaper than walking the stacks, so only the running threads are walked.
+      threadIds = runnableThreadIds(threadIds);
+    }
+    for (ThreadInfo thread : threads.getThreadInfo(threadIds, MAX_STACK_DEPTH)) {
+      // Threads that ended, or stopped running, since their ids were read are skipped.
+      if (thread == null || thread.getThreadId() == self
+          || (onCpuOnly && thread.getThreadState() != Thread.State.RUNNABLE)) {
+        continue;
+      }
+      StackTraceElement[] frames = thread.getStackTrace();
+      if (frames.length > 0) {
+        stackCounts.merge(collapse(frames), 1L, Long::sum);
+      }
+    }
+    sampleCount++;
+    samplingNanos += System.nanoTime() - start;
+  }
+
+  private long[] runnableThreadIds(long[] threadIds) {
+    long[] runnable = new long[threadIds.length];
+    int count = 0;
+    for (ThreadInfo thread : threads.getThreadInfo(threadIds, 0)) {
+      if (thread != null && thread.getThreadState() == Thread.State.RUNNABLE) {
+        runnable[count++] = thread.getThreadId();
+      }
+    }
+    return Arrays.copyOf(runnable, count);
+  }
+
+  // Joins the frames from the root to the leaf with semicolons, the format flame graph tools read.
+  private static String collapse(StackTraceElement[] frames) {
+    StringBuilder stack = new StringBuilder();
+    for (int i = frames.length - 1; i >= 0; i--) {
+      if (stack.length() > 0) {
+        stack.append(';');
+      }
+      // Java names cannot contain the semicolons and spaces separating the frames and the count.
+      stack.append(frames[i].getClassName()).append('.').append(frames[i].getMethodName());
+    }
+    return stack.toString();
+  }
+
+  /** The stacks seen while profiling, and what the profiling cost. */
+  public static final class Profile {
+    private final Map<String, Long> stackCounts;
+    private final int sampleCount;
+    private final long elapsedNanos;
+    private final long samplingNanos;
+
+    Profile(Map<String, Long> stackCounts, int sampleCount, long elapsedNanos, long samplingNanos) {
+      this.stackCounts = stackCounts;
+      this.sampleCount = sampleCount;
+      this.elapsedNanos = elapsedNanos;
+      this.samplingNanos = samplingNanos;
+    }
+
+    /** Returns each stack seen in the collapsed format, with the number of samples it was seen in. */
+    public Map<String, Long> getStackCounts() {
+      return stackCounts;
+    }
+
+    /** Returns the collapsed stacks ordered from the most to the least sampled. */
+    public List<Map.Entry<String, Long>> getHottestStacks() {
+      List<Map.Entry<String, Long>> stacks = new ArrayList<>(stackCounts.entrySet());
+      stacks.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+      return stacks;
+    }
+
+    public int getSampleCount() {
+      return sampleCount;
+    }
+
+    public long getElapsedMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /** Returns the fraction of the elapsed time spent taking samples. */
+    public double getOverhead() {
+      return elapsedNanos == 0 ? 0 : (double) samplingNanos / elapsedNanos;
+    }
+  }
+}
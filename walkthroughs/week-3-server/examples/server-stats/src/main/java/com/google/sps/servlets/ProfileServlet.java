@@ -0,0 +1,112 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.users.UserService;
+import com.google.appengine.api.users.UserServiceFactory;
+import com.google.sps.profiling.SamplingProfiler;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.annotation.HttpConstraint;
+import javax.servlet.annotation.ServletSecurity;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet profiling this server instance for the requested number of seconds, and returning the sampled stacks
+ * in the collapsed format flame graph tools read: one line per stack, with its frames from the root to the leaf
+ * separated by semicolons, followed by the number of samples it was seen in.
+ *
+ * <p>Parameters: {@code duration} in seconds (default 10, at most 30, to stay within the request deadline),
+ * {@code interval} between samples in milliseconds (default 20, at least 10) and {@code threads}, "runnable"
+ * (the default) to only count threads using or waiting for the CPU, or "all". One profile runs at a time.
+ *
+ * <p>Only administrators can profile the instance. Besides the security constraint, the servlet checks this
+ * itself, so it stays protected wherever the constraint is not enforced.
+ */
+@WebServlet("/server-stats/profile")
+@ServletSecurity(@HttpConstraint(rolesAllowed = "admin"))
+public final class ProfileServlet extends HttpServlet {
+
+  private static final int DEFAULT_DURATION_SECONDS = 10;
+  private static final int MAX_DURATION_SECONDS = 30;
+  private static final int DEFAULT_INTERVAL_MILLIS = 20;
+  private static final int MIN_INTERVAL_MILLIS = 10;
+
+  private final AtomicBoolean profiling = new AtomicBoolean();
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    UserService userService = UserServiceFactory.getUserService();
+    if (!userService.isUserLoggedIn() || !userService.isUserAdmin()) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN, "Only administrators can profile the server.");
+      return;
+    }
+
+    int durationSeconds;
+    int intervalMillis;
+    try {
+      durationSeconds = getIntParameter(request, "duration", DEFAULT_DURATION_SECONDS);
+      intervalMillis = getIntParameter(request, "interval", DEFAULT_INTERVAL_MILLIS);
+    } catch (NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "duration and interval must be numbers");
+      return;
+    }
+    String threads = request.getParameter("threads");
+    if (durationSeconds < 1 || durationSeconds > MAX_DURATION_SECONDS || intervalMillis < MIN_INTERVAL_MILLIS
+        || (threads != null && !threads.equals("runnable") && !threads.equals("all"))) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "duration must be from 1 to "
+          + MAX_DURATION_SECONDS + " seconds, interval at least " + MIN_INTERVAL_MILLIS
+          + " ms, and threads either runnable or all");
+      return;
+    }
+    if (!profiling.compareAndSet(false, true)) {
+      response.sendError(HttpServletResponse.SC_CONFLICT, "Another profile is running");
+      return;
+    }
+
+    SamplingProfiler.Profile profile;
+    try {
+      profile = new SamplingProfiler(!"all".equals(threads)).run(durationSeconds * 1000L, intervalMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The profile was interrupted");
+      return;
+    } finally {
+      profiling.set(false);
+    }
+
+    response.setContentType("text/plain;charset=UTF-8");
+    response.setHeader("X-Profile-Samples", String.valueOf(profile.getSampleCount()));
+    response.setHeader("X-Profile-Overhead", String.format(Locale.ROOT, "%.5f", profile.getOverhead()));
+    PrintWriter out = response.getWriter();
+    for (Map.Entry<String, Long> stack : profile.getHottestStacks()) {
+      out.print(stack.getKey());
+      out.print(' ');
+      out.println(stack.getValue());
+    }
+  }
+
+  /** @return the request parameter as an int, or the default value if it was not specified */
+  private static int getIntParameter(HttpServletRequest request, String name, int defaultValue) {
+    String value = request.getParameter(name);
+    return value == null ? defaultValue : Integer.parseInt(value);
+  }
+}
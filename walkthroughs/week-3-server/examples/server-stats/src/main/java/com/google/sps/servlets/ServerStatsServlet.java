@@ -14,8 +14,10 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.data.JvmStats;
 import com.google.sps.data.ServerStats;
-import com.google.gson.Gson;
+import com.google.sps.data.StatsHistory;
+import com.google.sps.json.Json;
 import java.io.IOException;
 import java.util.Date;
 import javax.servlet.annotation.WebServlet;
@@ -23,10 +25,20 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+/**
+ * Servlet returning server stats, including the JVM stats read from the management MXBeans. Each request also
+ * samples the stats into a history of this server instance, at most once per {@link #SAMPLE_INTERVAL_MILLIS}.
+ */
 @WebServlet("/server-stats")
 public final class ServerStatsServlet extends HttpServlet {
 
+  private static final long SAMPLE_INTERVAL_MILLIS = 5_000;
+  // The latest samples. Samples are only taken when the stats are requested, so this is an hour of samples if they
+  // are requested at least every SAMPLE_INTERVAL_MILLIS, and a longer time otherwise.
+  private static final int HISTORY_SIZE = 720;
+
   private final Date startTime = new Date();
+  private final StatsHistory history = new StatsHistory(HISTORY_SIZE, SAMPLE_INTERVAL_MILLIS);
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
@@ -34,14 +46,15 @@ public final class ServerStatsServlet extends HttpServlet {
     Date currentTime = new Date();
     long maxMemory = Runtime.getRuntime().maxMemory();
     long usedMemory = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    JvmStats jvm = JvmStats.collect();
+    history.offer(currentTime.getTime(), jvm);
 
-    // Convert the server stats to JSON
-    ServerStats serverStats = new ServerStats(startTime, currentTime, maxMemory, usedMemory);
-    String json = convertToJson(serverStats);
-
-    // Send the JSON as the response
-    response.setContentType("application/json;");
-    response.getWriter().println(json);
+    // Send the server stats as the JSON response: the fields convertToJson() builds by hand, followed by the JVM
+    // stats and their history. The methods below are the walkthrough's examples of converting the fields by hand
+    // and with Gson.
+    ServerStats serverStats =
+        new ServerStats(startTime, currentTime, maxMemory, usedMemory, jvm, history.getSamples());
+    Json.write(response, serverStats);
   }
 
   /**
@@ -69,8 +82,7 @@ public final class ServerStatsServlet extends HttpServlet {
    * the Gson library dependency to pom.xml.
    */
   private String convertToJsonUsingGson(ServerStats serverStats) {
-    Gson gson = new Gson();
-    String json = gson.toJson(serverStats);
+    String json = Json.GSON.toJson(serverStats);
     return json;
   }
 }
@@ -30,6 +30,40 @@ function getServerStats() {
         createListElement('Max memory: ' + stats.maxMemory));
     statsListElement.appendChild(
         createListElement('Used memory: ' + stats.usedMemory));
+
+    // The JVM stats, when the server reports them.
+    if (stats.heap) {
+      statsListElement.appendChild(createListElement(
+          'Heap: ' + stats.heap.used + ' used, ' + stats.heap.committed +
+          ' committed'));
+      for (const collector of stats.garbageCollectors) {
+        statsListElement.appendChild(createListElement(
+            'GC ' + collector.name + ': ' + collector.collectionCount +
+            ' collections in ' + collector.collectionTimeMillis + ' ms'));
+      }
+      statsListElement.appendChild(createListElement(
+          'Threads: ' + stats.threads.count + ' (' +
+          Object.entries(stats.threads.states)
+              .map(([state, count]) => state + ' ' + count)
+              .join(', ') +
+          ')'));
+      if (stats.cpu.processCpuLoad !== undefined) {
+        statsListElement.appendChild(createListElement(
+            'Process CPU: ' + (stats.cpu.processCpuLoad * 100).toFixed(1) +
+            '%'));
+      }
+    }
+    if (stats.history && stats.history.length > 0) {
+      const latest = stats.history[stats.history.length - 1];
+      // Samples are only taken when the stats are fetched, so the rate is
+      // averaged over however long it was since the previous sample.
+      if (latest.allocationRate !== undefined) {
+        statsListElement.appendChild(createListElement(
+            'Allocation rate: ' + Math.round(latest.allocationRate) +
+            ' bytes/s over the last ' +
+            (latest.elapsedMillis / 1000).toFixed(1) + ' s'));
+      }
+    }
   });
 }
 
@@ -15,7 +15,7 @@
 package com.google.sps.servlets;
 
 import com.google.sps.data.SubtractionGame;
-import com.google.gson.Gson;
+import com.google.sps.json.Json;
 import java.io.IOException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -30,9 +30,7 @@ public final class SubtractionServlet extends HttpServlet {
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    response.setContentType("application/json");
-    String json = new Gson().toJson(game);
-    response.getWriter().println(json);
+    Json.write(response, game);
   }
 
   @Override
@@ -14,40 +14,63 @@
 
 package com.google.sps.servlets;
 
+import com.google.sps.text.CommaTokenizer;
+import com.google.sps.text.TextPipeline;
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.Reader;
+import java.io.StringReader;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Servlet that processes text. */
+/**
+ * Servlet that processes text. The text is either the text-input parameter of a submitted form, or the whole body of
+ * any other request, in which case the options are read from the query string. The words are streamed from the
+ * input to the response, so only sorting and counting keep them in memory, and sorting spills to disk past
+ * {@link #MAX_SORT_BUFFER_CHARS}. See {@link TextPipeline} for the options.
+ */
 @WebServlet("/text")
 public final class TextProcessorServlet extends HttpServlet {
 
+  /** The approximate number of characters sorted in memory before sorted runs are written to disk. */
+  private static final long MAX_SORT_BUFFER_CHARS = 8 * 1024 * 1024;
+
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    // Get the input from the form.
-    String text = getParameter(request, "text-input", "");
-    boolean upperCase = Boolean.parseBoolean(getParameter(request, "upper-case", "false"));
-    boolean sort = Boolean.parseBoolean(getParameter(request, "sort", "false"));
-
-    // Convert the text to upper case.
-    if (upperCase) {
-      text = text.toUpperCase();
+    // Get the input from the form, or from the request body.
+    Reader text = isForm(request)
+        ? new StringReader(getParameter(request, "text-input", ""))
+        : request.getReader();
+    int top;
+    try {
+      top = Integer.parseInt(getParameter(request, "top", "0"));
+    } catch (NumberFormatException e) {
+      top = -1;
     }
-
-    // Break the text into individual words.
-    String[] words = text.split("\\s*,\\s*");
-
-    // Sort the words.
-    if (sort) {
-      Arrays.sort(words);
+    if (top < 0) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "top must be a non-negative number");
+      return;
     }
+    TextPipeline pipeline = new TextPipeline(MAX_SORT_BUFFER_CHARS)
+        .upperCase(getBooleanParameter(request, "upper-case"))
+        .caseFold(getBooleanParameter(request, "case-fold"))
+        .dedupe(getBooleanParameter(request, "dedupe"))
+        .sort(getBooleanParameter(request, "sort"))
+        .count(getBooleanParameter(request, "count"))
+        .top(top);
 
-    // Respond with the result.
+    // Break the text into individual words and respond with the processed words.
     response.setContentType("text/html;");
-    response.getWriter().println(Arrays.toString(words));
+    pipeline.run(new CommaTokenizer(text), response.getWriter());
+  }
+
+  /** @return true if the request body holds form parameters rather than the text itself */
+  private static boolean isForm(HttpServletRequest request) {
+    String contentType = request.getContentType();
+    return contentType != null
+        && (contentType.startsWith("application/x-www-form-urlencoded")
+            || contentType.startsWith("multipart/form-data"));
   }
 
   /**
@@ -61,4 +84,9 @@ public final class TextProcessorServlet extends HttpServlet {
     }
     return value;
   }
+
+  /** @return true if the request parameter is "true" */
+  private boolean getBooleanParameter(HttpServletRequest request, String name) {
+    return Boolean.parseBoolean(getParameter(request, name, "false"));
+  }
 }
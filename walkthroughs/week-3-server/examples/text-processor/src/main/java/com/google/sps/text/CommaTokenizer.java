@@ -0,0 +1,119 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.text;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits comma-separated text read from a {@code Reader} into words, one word at a time, so the text is never held
+ * in memory as a whole.
+ *
+ * <p>The words are the ones {@code text.split("\\s*,\\s*")} returns: whitespace around the commas is removed,
+ * empty words between commas are kept and empty words at the end are dropped. An empty text has no words.
+ */
+public final class CommaTokenizer {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Reader reader;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int position;
+  private int limit;
+  private boolean ended;
+  // Whether the text read so far had a comma, so the next word starts after one.
+  private boolean afterComma;
+  private final StringBuilder word = new StringBuilder();
+
+  // Empty words that were read, which are only returned if a non-empty word follows them.
+  private int pendingEmptyWords;
+  // The non-empty word to return after the pending empty words.
+  private String pendingWord;
+
+  public CommaTokenizer(Reader reader) {
+    this.reader = reader;
+  }
+
+  /** Returns the next word, or null if there are no more words. */
+  public String next() throws IOException {
+    if (pendingEmptyWords > 0) {
+      pendingEmptyWords--;
+      return "";
+    }
+    if (pendingWord != null) {
+      String next = pendingWord;
+      pendingWord = null;
+      return next;
+    }
+    String next;
+    while ((next = readWord()) != null) {
+      if (!next.isEmpty()) {
+        if (pendingEmptyWords == 0) {
+          return next;
+        }
+        pendingWord = next;
+        pendingEmptyWords--;
+        return "";
+      }
+      pendingEmptyWords++;
+    }
+    // The empty words at the end are dropped.
+    pendingEmptyWords = 0;
+    return null;
+  }
+
+  /** Reads the text up to the next comma or the end of the input, or returns null once the input has ended. */
+  private String readWord() throws IOException {
+    if (ended) {
+      return null;
+    }
+    word.setLength(0);
+    boolean skippingLeadingWhitespace = afterComma;
+    while (true) {
+      if (position == limit && !fill()) {
+        ended = true;
+        // The last word keeps its trailing whitespace, and an empty text has no words.
+        return afterComma || word.length() > 0 ? word.toString() : null;
+      }
+      char c = buffer[position++];
+      if (c == ',') {
+        afterComma = true;
+        int length = word.length();
+        while (length > 0 && isWhitespace(word.charAt(length - 1))) {
+          length--;
+        }
+        word.setLength(length);
+        return word.toString();
+      }
+      if (skippingLeadingWhitespace && isWhitespace(c)) {
+        continue;
+      }
+      skippingLeadingWhitespace = false;
+      word.append(c);
+    }
+  }
+
+  private boolean fill() throws IOException {
+    int read = reader.read(buffer, 0, buffer.length);
+    position = 0;
+    limit = Math.max(read, 0);
+    return read > 0;
+  }
+
+  /** Returns true for the characters the regular expression {@code \s} matches. */
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+}
@@ -0,0 +1,171 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.text;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts words that may not fit in memory. Words are buffered until the buffer is full, then sorted in parallel and
+ * written to a temporary file as a sorted run; {@link #sorted()} merges the runs back into a single sorted sequence.
+ * Words that all fit in the buffer are sorted in memory without touching the disk.
+ */
+public final class ExternalSorter implements Closeable {
+
+  // The approximate memory an array slot and a String object take besides the characters, in chars.
+  private static final int WORD_OVERHEAD_CHARS = 24;
+  private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+  private final long maxBufferedChars;
+  private String[] buffer = new String[1024];
+  private int size;
+  private long bufferedChars;
+  private final List<Path> runs = new ArrayList<>();
+  private final List<Integer> runSizes = new ArrayList<>();
+  private final List<Run> openRuns = new ArrayList<>();
+
+  /** Creates a sorter that keeps about {@code maxBufferedChars} characters in memory. */
+  public ExternalSorter(long maxBufferedChars) {
+    this.maxBufferedChars = maxBufferedChars;
+  }
+
+  public void add(String word) throws IOException {
+    if (size == buffer.length) {
+      buffer = Arrays.copyOf(buffer, size * 2);
+    }
+    buffer[size++] = word;
+    bufferedChars += word.length() + WORD_OVERHEAD_CHARS;
+    if (bufferedChars >= maxBufferedChars) {
+      spill();
+    }
+  }
+
+  /** Returns the words added so far in ascending order. Can only be called once. */
+  public Iterator<String> sorted() throws IOException {
+    Arrays.parallelSort(buffer, 0, size);
+    if (runs.isEmpty()) {
+      return Arrays.asList(buffer).subList(0, size).iterator();
+    }
+    if (size > 0) {
+      spill();
+    }
+    buffer = null;
+    PriorityQueue<Run> heads = new PriorityQueue<>((a, b) -> a.head.compareTo(b.head));
+    for (int i = 0; i < runs.size(); i++) {
+      Run run = new Run(runs.get(i), runSizes.get(i));
+      openRuns.add(run);
+      if (run.advance()) {
+        heads.add(run);
+      }
+    }
+    return new Iterator<String>() {
+      @Override
+      public boolean hasNext() {
+        return !heads.isEmpty();
+      }
+
+      @Override
+      public String next() {
+        Run run = heads.poll();
+        if (run == null) {
+          throw new NoSuchElementException();
+        }
+        String word = run.head;
+        try {
+          if (run.advance()) {
+            heads.add(run);
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        return word;
+      }
+    };
+  }
+
+  /** Deletes the temporary files of the sorted runs. */
+  @Override
+  public void close() throws IOException {
+    for (Run run : openRuns) {
+      run.input.close();
+    }
+    for (Path path : runs) {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  // Sorts the buffered words and writes them to a new run file.
+  private void spill() throws IOException {
+    Arrays.parallelSort(buffer, 0, size);
+    Path path = Files.createTempFile("text-processor-", ".run");
+    runs.add(path);
+    runSizes.add(size);
+    try (DataOutputStream output =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), FILE_BUFFER_SIZE))) {
+      for (int i = 0; i < size; i++) {
+        // Words are written as their length followed by their UTF-16 chars, so any word is read back unchanged.
+        output.writeInt(buffer[i].length());
+        output.writeChars(buffer[i]);
+        buffer[i] = null;
+      }
+    }
+    size = 0;
+    bufferedChars = 0;
+  }
+
+  /** A run file being merged, positioned on its smallest word not merged yet. */
+  private static final class Run {
+    private final DataInputStream input;
+    private int remaining;
+    private String head;
+    private char[] chars = new char[64];
+
+    Run(Path path, int size) throws IOException {
+      input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), FILE_BUFFER_SIZE));
+      remaining = size;
+    }
+
+    /** Reads the next word into {@code head}, or returns false if the run has no more words. */
+    boolean advance() throws IOException {
+      if (remaining == 0) {
+        head = null;
+        return false;
+      }
+      remaining--;
+      int length = input.readInt();
+      if (length > chars.length) {
+        chars = new char[Math.max(length, chars.length * 2)];
+      }
+      for (int i = 0; i < length; i++) {
+        chars[i] = input.readChar();
+      }
+      head = new String(chars, 0, length);
+      return true;
+    }
+  }
+}
@@ -0,0 +1,184 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.text;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * The operations applied to the words of a text, in a fixed order: words are upper-cased or case-folded, then
+ * either counted, or deduplicated and sorted. Words are written formatted like {@code Arrays.toString}, as
+ * {@code word=count} entries when they are counted.
+ *
+ * <p>Everything that can be done while the words are read is done in that single pass: case changes, dedupe of
+ * unsorted words and counting. Sorting keeps the words in an {@link ExternalSorter}, which also dedupes sorted words
+ * by skipping repeats, and counting keeps one entry per distinct word.
+ */
+public final class TextPipeline {
+
+  private final long maxSortBufferChars;
+  private boolean upperCase;
+  private boolean caseFold;
+  private boolean dedupe;
+  private boolean sort;
+  private boolean count;
+  private int top;
+
+  /** Creates a pipeline that sorts about {@code maxSortBufferChars} characters in memory. */
+  public TextPipeline(long maxSortBufferChars) {
+    this.maxSortBufferChars = maxSortBufferChars;
+  }
+
+  /** Converts the words to upper case. */
+  public TextPipeline upperCase(boolean upperCase) {
+    this.upperCase = upperCase;
+    return this;
+  }
+
+  /** Folds the case of the words, so words differing only in case are the same word. */
+  public TextPipeline caseFold(boolean caseFold) {
+    this.caseFold = caseFold;
+    return this;
+  }
+
+  /** Keeps only the first occurrence of each word. */
+  public TextPipeline dedupe(boolean dedupe) {
+    this.dedupe = dedupe;
+    return this;
+  }
+
+  /** Sorts the words, or the counted words, alphabetically. */
+  public TextPipeline sort(boolean sort) {
+    this.sort = sort;
+    return this;
+  }
+
+  /** Writes each distinct word once with the number of times it occurs. */
+  public TextPipeline count(boolean count) {
+    this.count = count;
+    return this;
+  }
+
+  /** Writes only the {@code top} most frequent words with their counts, most frequent first; 0 disables it. */
+  public TextPipeline top(int top) {
+    this.top = top;
+    return this;
+  }
+
+  /** Reads all the words and writes the result. */
+  public void run(CommaTokenizer words, PrintWriter writer) throws IOException {
+    ListWriter out = new ListWriter(writer);
+    if (count || top > 0) {
+      writeCounts(words, out);
+    } else if (sort) {
+      writeSorted(words, out);
+    } else {
+      writeInOrder(words, out);
+    }
+    out.finish();
+  }
+
+  private void writeInOrder(CommaTokenizer words, ListWriter out) throws IOException {
+    WordCounts seen = dedupe ? new WordCounts() : null;
+    String word;
+    while ((word = words.next()) != null) {
+      word = convertCase(word);
+      if (seen == null || seen.add(word) == 1) {
+        out.add(word);
+      }
+    }
+  }
+
+  private void writeSorted(CommaTokenizer words, ListWriter out) throws IOException {
+    try (ExternalSorter sorter = new ExternalSorter(maxSortBufferChars)) {
+      String word;
+      while ((word = words.next()) != null) {
+        sorter.add(convertCase(word));
+      }
+      Iterator<String> sorted = sorter.sorted();
+      String previous = null;
+      while (sorted.hasNext()) {
+        word = sorted.next();
+        if (!dedupe || !word.equals(previous)) {
+          out.add(word);
+        }
+        previous = word;
+      }
+    }
+  }
+
+  private void writeCounts(CommaTokenizer words, ListWriter out) throws IOException {
+    WordCounts counts = new WordCounts();
+    String word;
+    while ((word = words.next()) != null) {
+      counts.add(convertCase(word));
+    }
+    if (top > 0) {
+      for (int index : counts.top(top)) {
+        out.add(counts.word(index) + "=" + counts.count(index));
+      }
+    } else if (sort) {
+      String[] distinct = new String[counts.size()];
+      for (int index = 0; index < distinct.length; index++) {
+        distinct[index] = counts.word(index);
+      }
+      Arrays.parallelSort(distinct);
+      for (String distinctWord : distinct) {
+        out.add(distinctWord + "=" + counts.get(distinctWord));
+      }
+    } else {
+      for (int index = 0; index < counts.size(); index++) {
+        out.add(counts.word(index) + "=" + counts.count(index));
+      }
+    }
+  }
+
+  private String convertCase(String word) {
+    if (upperCase) {
+      word = word.toUpperCase();
+    }
+    if (caseFold) {
+      // Upper-casing first maps characters like the German sharp s to the same word as their upper-case spelling.
+      word = word.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+    return word;
+  }
+
+  /** Writes words formatted like {@code Arrays.toString}. */
+  private static final class ListWriter {
+    private final PrintWriter out;
+    private boolean empty = true;
+
+    ListWriter(PrintWriter out) {
+      this.out = out;
+      out.print('[');
+    }
+
+    void add(String word) {
+      if (!empty) {
+        out.print(", ");
+      }
+      out.print(word);
+      empty = false;
+    }
+
+    void finish() {
+      out.println(']');
+    }
+  }
+}
@@ -0,0 +1,171 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.text;
+
+import java.util.Arrays;
+
+/**
+ * Counts how many times each word occurs, in an open-addressing hash table of int counts so counting allocates
+ * nothing per occurrence. Words are numbered in the order they were first added.
+ */
+public final class WordCounts {
+
+  private String[] words = new String[16];
+  private int[] counts = new int[16];
+  private int size;
+  // The index of the word in each slot plus one, or 0 for an empty slot. Its length is a power of two that stays
+  // at least twice the number of words.
+  private int[] table = new int[32];
+
+  /** Counts one more occurrence of the word and returns its count. */
+  public int add(String word) {
+    int mask = table.length - 1;
+    for (int slot = hash(word) & mask; ; slot = (slot + 1) & mask) {
+      int index = table[slot] - 1;
+      if (index < 0) {
+        if (size == words.length) {
+          words = Arrays.copyOf(words, size * 2);
+          counts = Arrays.copyOf(counts, size * 2);
+        }
+        words[size] = word;
+        counts[size] = 1;
+        table[slot] = ++size;
+        if (size * 2 > table.length) {
+          rehash(table.length * 2);
+        }
+        return 1;
+      }
+      if (words[index].equals(word)) {
+        return ++counts[index];
+      }
+    }
+  }
+
+  /** Returns the number of times the word was added. */
+  public int get(String word) {
+    int mask = table.length - 1;
+    for (int slot = hash(word) & mask; ; slot = (slot + 1) & mask) {
+      int index = table[slot] - 1;
+      if (index < 0) {
+        return 0;
+      }
+      if (words[index].equals(word)) {
+        return counts[index];
+      }
+    }
+  }
+
+  /** Returns the number of distinct words. */
+  public int size() {
+    return size;
+  }
+
+  public String word(int index) {
+    return words[index];
+  }
+
+  public int count(int index) {
+    return counts[index];
+  }
+
+  /**
+   * Returns the indexes of the k most frequent words, most frequent first and equally frequent words in
+   * alphabetical order. Only k indexes are kept while the words are scanned, in a heap with the weakest on top.
+   */
+  public int[] top(int k) {
+    int[] heap = new int[Math.min(k, size)];
+    int heapSize = 0;
+    for (int index = 0; index < size; index++) {
+      if (heapSize < heap.length) {
+        heap[heapSize] = index;
+        siftUp(heap, heapSize++);
+      } else if (heapSize > 0 && ranksBefore(index, heap[0])) {
+        heap[0] = index;
+        siftDown(heap, heapSize);
+      }
+    }
+    // Removing the weakest index first fills the array from the end, leaving it ordered strongest first.
+    for (int last = heapSize - 1; last > 0; last--) {
+      int weakest = heap[0];
+      heap[0] = heap[last];
+      heap[last] = weakest;
+      siftDown(heap, last);
+    }
+    return heap;
+  }
+
+  // Returns true if the word at index a is more frequent, or as frequent and alphabetically first.
+  private boolean ranksBefore(int a, int b) {
+    if (counts[a] != counts[b]) {
+      return counts[a] > counts[b];
+    }
+    return words[a].compareTo(words[b]) < 0;
+  }
+
+  private void siftUp(int[] heap, int position) {
+    while (position > 0) {
+      int parent = (position - 1) / 2;
+      if (!ranksBefore(heap[parent], heap[position])) {
+        return;
+      }
+      swap(heap, parent, position);
+      position = parent;
+    }
+  }
+
+  private void siftDown(int[] heap, int heapSize) {
+    int position = 0;
+    while (true) {
+      int weakest = position;
+      int left = 2 * position + 1;
+      int right = left + 1;
+      if (left < heapSize && ranksBefore(heap[weakest], heap[left])) {
+        weakest = left;
+      }
+      if (right < heapSize && ranksBefore(heap[weakest], heap[right])) {
+        weakest = right;
+      }
+      if (weakest == position) {
+        return;
+      }
+      swap(heap, position, weakest);
+      position = weakest;
+    }
+  }
+
+  private void rehash(int capacity) {
+    table = new int[capacity];
+    int mask = capacity - 1;
+    for (int index = 0; index < size; index++) {
+      int slot = hash(words[index]) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = index + 1;
+    }
+  }
+
+  private static void swap(int[] heap, int i, int j) {
+    int value = heap[i];
+    heap[i] = heap[j];
+    heap[j] = value;
+  }
+
+  // Spreads the high bits of the string hash into the low bits the table uses.
+  private static int hash(String word) {
+    int h = word.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,110 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.text;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests that {@link CommaTokenizer} returns the words {@code split("\\s*,\\s*")} returns. */
+@RunWith(JUnit4.class)
+public final class CommaTokenizerTest {
+  @Test
+  public void emptyTextHasNoWords() throws IOException {
+    Assert.assertEquals(Arrays.asList(), tokenize(new StringReader("")));
+  }
+
+  @Test
+  public void matchesSplit() throws IOException {
+    String[] texts = {
+      "a", "a,b,c", "a , b ,c", " a, b ", "a,,b", ",a", " , a", "a,", "a,,,", ",", ",,", " , ", "  ",
+      "a,\tb\n,c", "a\n", ",,a,,", "a b, c d"
+    };
+    for (String text : texts) {
+      assertMatchesSplit(text);
+    }
+  }
+
+  @Test
+  public void matchesSplitOnRandomText() throws IOException {
+    Random random = new Random(42);
+    char[] alphabet = {'a', 'b', ' ', '\t', '\n', ','};
+    for (int i = 0; i < 2000; i++) {
+      char[] text = new char[1 + random.nextInt(20)];
+      for (int j = 0; j < text.length; j++) {
+        text[j] = alphabet[random.nextInt(alphabet.length)];
+      }
+      assertMatchesSplit(new String(text));
+    }
+  }
+
+  @Test
+  public void matchesSplitAcrossTheBuffer() throws IOException {
+    // Words, whitespace and runs of empty words longer than the 8192-char buffer.
+    StringBuilder text = new StringBuilder();
+    Random random = new Random(7);
+    for (int i = 0; i < 3000; i++) {
+      text.append(i % 500 == 0 ? repeat('w', 10000) : "word" + i);
+      text.append(i % 700 == 0 ? repeat(' ', 9000) : " ");
+      text.append(i % 900 == 0 ? repeat(',', 9000) : ",");
+      text.append(repeat(' ', random.nextInt(3)));
+    }
+    assertMatchesSplit(text.toString());
+  }
+
+  private static void assertMatchesSplit(String text) throws IOException {
+    List<String> expected = Arrays.asList(text.split("\\s*,\\s*"));
+    Assert.assertEquals(text, expected, tokenize(new StringReader(text)));
+    // A reader returning one char at a time puts every word across a buffer refill.
+    Assert.assertEquals(text, expected, tokenize(new OneCharReader(new StringReader(text))));
+  }
+
+  private static List<String> tokenize(Reader reader) throws IOException {
+    CommaTokenizer tokenizer = new CommaTokenizer(reader);
+    List<String> words = new ArrayList<>();
+    for (String word = tokenizer.next(); word != null; word = tokenizer.next()) {
+      words.add(word);
+    }
+    Assert.assertNull(tokenizer.next());
+    return words;
+  }
+
+  private static String repeat(char c, int count) {
+    char[] chars = new char[count];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+
+  /** A reader that reads at most one char per call. */
+  private static final class OneCharReader extends FilterReader {
+    OneCharReader(Reader in) {
+      super(in);
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+      return super.read(buffer, offset, Math.min(length, 1));
+    }
+  }
+}
@@ -0,0 +1,92 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.text;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests {@link ExternalSorter} in memory and when it merges sorted runs from disk. */
+@RunWith(JUnit4.class)
+public final class ExternalSorterTest {
+  @Test
+  public void sortsInMemory() throws IOException {
+    assertSorts(Long.MAX_VALUE, Arrays.asList("pear", "fig", "apple", "fig", ""));
+  }
+
+  @Test
+  public void sortsNothing() throws IOException {
+    assertSorts(Long.MAX_VALUE, new ArrayList<>());
+  }
+
+  @Test
+  public void mergesRuns() throws IOException {
+    // A buffer of about 100 chars holds a few words, so the words are spilled to many runs.
+    assertSorts(100, randomWords(new Random(42), 2000));
+  }
+
+  @Test
+  public void mergesSingleWordRuns() throws IOException {
+    // Every word fills the buffer, so each run holds a single word.
+    assertSorts(1, Arrays.asList("c", "a", "b", "a"));
+  }
+
+  @Test
+  public void mergesRunsWithTheLastOneInMemory() throws IOException {
+    // 1000 chars of words spill into runs and the remaining words are still buffered when sorted.
+    assertSorts(1000, randomWords(new Random(7), 1234));
+  }
+
+  @Test
+  public void mergesWordsWithAnyChars() throws IOException {
+    assertSorts(1, Arrays.asList("\u00e9t\u00e9", "z", "\uD83D\uDE00", "a\u0000b", "", "a"));
+  }
+
+  private static void assertSorts(long maxBufferedChars, List<String> words) throws IOException {
+    List<String> expected = new ArrayList<>(words);
+    Collections.sort(expected);
+    List<String> actual = new ArrayList<>();
+    try (ExternalSorter sorter = new ExternalSorter(maxBufferedChars)) {
+      for (String word : words) {
+        sorter.add(word);
+      }
+      Iterator<String> sorted = sorter.sorted();
+      while (sorted.hasNext()) {
+        actual.add(sorted.next());
+      }
+    }
+    Assert.assertEquals(expected, actual);
+  }
+
+  private static List<String> randomWords(Random random, int count) {
+    List<String> words = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      char[] word = new char[random.nextInt(8)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) ('a' + random.nextInt(4));
+      }
+      words.add(new String(word));
+    }
+    return words;
+  }
+}
@@ -0,0 +1,117 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.text;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests the counting and the top k of {@link WordCounts}. */
+@RunWith(JUnit4.class)
+public final class WordCountsTest {
+  @Test
+  public void countsEachWord() {
+    WordCounts counts = new WordCounts();
+
+    Assert.assertEquals(1, counts.add("apple"));
+    Assert.assertEquals(1, counts.add("banana"));
+    Assert.assertEquals(2, counts.add("apple"));
+
+    Assert.assertEquals(2, counts.size());
+    Assert.assertEquals(2, counts.get("apple"));
+    Assert.assertEquals(1, counts.get("banana"));
+    Assert.assertEquals(0, counts.get("cherry"));
+    Assert.assertEquals("apple", counts.word(0));
+    Assert.assertEquals(2, counts.count(0));
+  }
+
+  @Test
+  public void keepsCountsWhileGrowing() {
+    WordCounts counts = new WordCounts();
+    // Enough words to grow the arrays and rehash the table several times.
+    for (int i = 0; i < 1000; i++) {
+      for (int j = 0; j <= i % 3; j++) {
+        counts.add("word" + i);
+      }
+    }
+
+    Assert.assertEquals(1000, counts.size());
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertEquals(i % 3 + 1, counts.get("word" + i));
+    }
+    Assert.assertEquals(0, counts.get("word1000"));
+  }
+
+  @Test
+  public void topOrdersByCountThenAlphabetically() {
+    WordCounts counts = addAll("pear", "fig", "kiwi", "fig", "apple", "kiwi", "fig", "date");
+
+    Assert.assertArrayEquals(
+        new String[] {"fig", "kiwi", "apple", "date", "pear"}, words(counts, counts.top(5)));
+    Assert.assertArrayEquals(new String[] {"fig", "kiwi", "apple"}, words(counts, counts.top(3)));
+  }
+
+  @Test
+  public void topOfMoreThanSizeReturnsEveryWord() {
+    WordCounts counts = addAll("b", "a", "b");
+
+    Assert.assertArrayEquals(new String[] {"b", "a"}, words(counts, counts.top(10)));
+  }
+
+  @Test
+  public void topOfNothing() {
+    Assert.assertEquals(0, new WordCounts().top(5).length);
+    Assert.assertEquals(0, addAll("a", "b").top(0).length);
+  }
+
+  @Test
+  public void topMatchesSortingEveryWord() {
+    WordCounts counts = new WordCounts();
+    Random random = new Random(42);
+    for (int i = 0; i < 5000; i++) {
+      counts.add("w" + random.nextInt(300));
+    }
+    String[] all = words(counts, counts.top(counts.size()));
+    Assert.assertEquals(counts.size(), all.length);
+    for (int i = 1; i < all.length; i++) {
+      int previous = counts.get(all[i - 1]);
+      int current = counts.get(all[i]);
+      Assert.assertTrue(previous > current || (previous == current && all[i - 1].compareTo(all[i]) < 0));
+    }
+
+    for (int k : new int[] {1, 7, 50, 299}) {
+      Assert.assertArrayEquals(Arrays.copyOf(all, k), words(counts, counts.top(k)));
+    }
+  }
+
+  private static WordCounts addAll(String... words) {
+    WordCounts counts = new WordCounts();
+    for (String word : words) {
+      counts.add(word);
+    }
+    return counts;
+  }
+
+  private static String[] words(WordCounts counts, int[] indexes) {
+    String[] words = new String[indexes.length];
+    for (int i = 0; i < indexes.length; i++) {
+      words[i] = counts.word(indexes[i]);
+    }
+    return words;
+  }
+}
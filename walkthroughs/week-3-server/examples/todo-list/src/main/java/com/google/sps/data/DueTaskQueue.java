@@ -0,0 +1,66 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The tasks that have a due date, ordered by when they are next due and then by priority, highest first.
+ *
+ * <p>The tasks are kept in a balanced tree, so adding or removing a task takes O(log n) time and the next
+ * {@code n} tasks due are read off its head, without sorting. A task is found by its id for removal in O(1).
+ */
+public final class DueTaskQueue {
+
+  private static final Comparator<Task> DUE_ORDER =
+      Comparator.comparingLong(Task::getDueDate)
+          .thenComparing(Comparator.comparingInt(Task::getPriority).reversed())
+          .thenComparingLong(Task::getId);
+
+  private final TreeSet<Task> tasks = new TreeSet<>(DUE_ORDER);
+  private final Map<Long, Task> tasksById = new HashMap<>();
+
+  /** Adds the task, replacing the task with the same id. A task without a due date is only removed. */
+  public synchronized void add(Task task) {
+    remove(task.getId());
+    if (task.getDueDate() != null) {
+      tasks.add(task);
+      tasksById.put(task.getId(), task);
+    }
+  }
+
+  public synchronized void remove(long id) {
+    Task task = tasksById.remove(id);
+    if (task != null) {
+      tasks.remove(task);
+    }
+  }
+
+  /** Returns up to {@code n} tasks that are due next, in order. */
+  public synchronized List<Task> next(int n) {
+    List<Task> next = new ArrayList<>(Math.min(n, tasks.size()));
+    Iterator<Task> iterator = tasks.iterator();
+    while (next.size() < n && iterator.hasNext()) {
+      next.add(iterator.next());
+    }
+    return next;
+  }
+}
@@ -20,10 +20,42 @@ public final class Task {
   private final long id;
   private final String title;
   private final long timestamp;
+  private final int priority;
+  private final Long dueDate;
 
   public Task(long id, String title, long timestamp) {
+    this(id, title, timestamp, 0, null);
+  }
+
+  /**
+   * @param priority higher priorities are more urgent
+   * @param dueDate the time the task is due, in milliseconds since the epoch, or null if it has no due date
+   */
+  public Task(long id, String title, long timestamp, int priority, Long dueDate) {
     this.id = id;
     this.title = title;
     this.timestamp = timestamp;
+    this.priority = priority;
+    this.dueDate = dueDate;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public int getPriority() {
+    return priority;
+  }
+
+  public Long getDueDate() {
+    return dueDate;
   }
-}
\ No newline at end of file
+}
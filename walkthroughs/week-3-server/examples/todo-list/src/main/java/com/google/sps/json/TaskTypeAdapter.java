@@ -0,0 +1,73 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.data.Task;
+import java.io.IOException;
+
+/** Converts a {@code Task} to and from JSON, with the same fields as reflection would use. */
+final class TaskTypeAdapter extends TypeAdapter<Task> {
+
+  @Override
+  public void write(JsonWriter out, Task task) throws IOException {
+    out.beginObject();
+    out.name("id").value(task.getId());
+    out.name("title").value(task.getTitle());
+    out.name("timestamp").value(task.getTimestamp());
+    out.name("priority").value(task.getPriority());
+    if (task.getDueDate() != null) {
+      out.name("dueDate").value(task.getDueDate());
+    }
+    out.endObject();
+  }
+
+  @Override
+  public Task read(JsonReader in) throws IOException {
+    long id = 0;
+    String title = null;
+    long timestamp = 0;
+    int priority = 0;
+    Long dueDate = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "id":
+          id = in.nextLong();
+          break;
+        case "title":
+          title = in.nextString();
+          break;
+        case "timestamp":
+          timestamp = in.nextLong();
+          break;
+        case "priority":
+          priority = in.nextInt();
+          break;
+        case "dueDate":
+          dueDate = in.nextLong();
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new Task(id, title, timestamp, priority, dueDate);
+  }
+}
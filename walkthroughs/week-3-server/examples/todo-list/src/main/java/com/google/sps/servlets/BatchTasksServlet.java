@@ -0,0 +1,301 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.data.Task;
+import com.google.sps.json.Json;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet applying many task changes in one request.
+ *
+ * <p>The request body is a JSON array of operations: {@code {"op": "create", "title": ..., "timestamp": ...,
+ * "priority": ..., "dueDate": ...}} (all but the title are optional), {@code {"op": "update", "id": ...,
+ * "title": ..., "priority": ..., "dueDate": ...}} (only the given fields change, and a null due date removes it)
+ * or {@code {"op": "delete", "id": ...}}. Creates and updates are written with batched puts and then the
+ * deleted tasks are tombstoned with batched puts, so a task updated and deleted in the same request ends up
+ * deleted. Updating or deleting a task that doesn't exist or was already deleted is {@code not_found}.
+ *
+ * <p>The response is {@code {"results": [...]}}, with one result per operation in the same order, holding its
+ * {@code status} ({@code created}, {@code updated}, {@code deleted}, {@code not_found} or {@code error}), the
+ * {@code id} of the task and an {@code error} message for failed operations.
+ */
+@WebServlet("/tasks/batch")
+public class BatchTasksServlet extends HttpServlet {
+
+  private static final int MAX_OPERATIONS = 1000;
+  // The most entities the datastore accepts in one put or delete.
+  private static final int WRITE_CHUNK_SIZE = 500;
+  // The most entities the datastore returns from one get, which reads a task and its tombstone per update.
+  private static final int READ_CHUNK_SIZE = 500;
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    List<Operation> operations;
+    try {
+      operations = readOperations(new JsonReader(request.getReader()));
+    } catch (IOException | JsonParseException | IllegalStateException | NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "The body must be a JSON array of operations");
+      return;
+    }
+    if (operations.size() > MAX_OPERATIONS) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "At most " + MAX_OPERATIONS + " operations per batch");
+      return;
+    }
+
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    List<Operation> creates = new ArrayList<>();
+    List<Operation> updates = new ArrayList<>();
+    List<Operation> deletes = new ArrayList<>();
+    for (Operation operation : operations) {
+      if (operation.status != null) {
+        continue;
+      }
+      switch (operation.type) {
+        case "create":
+          creates.add(operation);
+          break;
+        case "update":
+          updates.add(operation);
+          break;
+        default:
+          deletes.add(operation);
+      }
+    }
+
+    // Updates only change the given fields, so the tasks are read first to keep their other properties.
+    List<Operation> writes = new ArrayList<>(creates);
+    for (List<Operation> chunk : chunks(updates, READ_CHUNK_SIZE)) {
+      List<Key> keys = new ArrayList<>(chunk.size());
+      for (Operation operation : chunk) {
+        keys.add(operation.key());
+        // Read the tombstones in the same call, since a deleted task can't be updated.
+        keys.add(Tasks.tombstoneKey(operation.id));
+      }
+      try {
+        Map<Key, Entity> entities = datastore.get(keys);
+        for (Operation operation : chunk) {
+          Entity entity = entities.get(operation.key());
+          if (entity == null || entities.containsKey(Tasks.tombstoneKey(operation.id))) {
+            operation.status = "not_found";
+          } else {
+            if (operation.title != null) {
+              entity.setProperty("title", operation.title);
+            }
+            Task task = Tasks.fromEntity(entity);
+            Tasks.setSchedule(entity,
+                operation.priority != null ? operation.priority : task.getPriority(),
+                operation.hasDueDate ? operation.dueDate : task.getDueDate());
+            operation.entity = entity;
+            writes.add(operation);
+          }
+        }
+      } catch (RuntimeException e) {
+        fail(chunk, e);
+      }
+    }
+
+    for (Operation operation : creates) {
+      Entity entity = new Entity("Task");
+      entity.setProperty("title", operation.title);
+      entity.setProperty("timestamp", operation.timestamp != null ? operation.timestamp : System.currentTimeMillis());
+      Tasks.setSchedule(entity, operation.priority != null ? operation.priority : 0, operation.dueDate);
+      operation.entity = entity;
+    }
+    for (List<Operation> chunk : chunks(writes, WRITE_CHUNK_SIZE)) {
+      List<Entity> entities = new ArrayList<>(chunk.size());
+      for (Operation operation : chunk) {
+        entities.add(operation.entity);
+      }
+      try {
+        List<Key> keys = datastore.put(entities);
+        for (int i = 0; i < chunk.size(); i++) {
+          Operation operation = chunk.get(i);
+          operation.id = keys.get(i).getId();
+          operation.status = operation.type.equals("create") ? "created" : "updated";
+        }
+        Tasks.changed();
+      } catch (RuntimeException e) {
+        fail(chunk, e);
+      }
+    }
+
+    // Deleted tasks are tombstoned, and removed later by CompactTasksServlet. Like updates, they are read first
+    // with their tombstones, since a task that doesn't exist or was deleted already can't be deleted.
+    Set<Long> deletedIds = new HashSet<>();
+    for (List<Operation> chunk : chunks(deletes, Math.min(READ_CHUNK_SIZE, WRITE_CHUNK_SIZE))) {
+      List<Key> keys = new ArrayList<>(chunk.size() * 2);
+      for (Operation operation : chunk) {
+        keys.add(operation.key());
+        keys.add(Tasks.tombstoneKey(operation.id));
+      }
+      try {
+        Map<Key, Entity> entities = datastore.get(keys);
+        List<Operation> found = new ArrayList<>(chunk.size());
+        List<Entity> tombstones = new ArrayList<>(chunk.size());
+        for (Operation operation : chunk) {
+          if (!entities.containsKey(operation.key()) || entities.containsKey(Tasks.tombstoneKey(operation.id))
+              || !deletedIds.add(operation.id)) {
+            operation.status = "not_found";
+          } else {
+            found.add(operation);
+            tombstones.add(Tasks.tombstone(operation.id));
+          }
+        }
+        if (!tombstones.isEmpty()) {
+          datastore.put(tombstones);
+          Tasks.changed();
+        }
+        for (Operation operation : found) {
+          operation.status = "deleted";
+        }
+      } catch (RuntimeException e) {
+        fail(chunk, e);
+      }
+    }
+
+    writeResults(Json.newResponseWriter(response), operations);
+  }
+
+  /** Reads the operations, marking the invalid ones as failed instead of rejecting the whole batch. */
+  private static List<Operation> readOperations(JsonReader in) throws IOException {
+    List<Operation> operations = new ArrayList<>();
+    in.beginArray();
+    while (in.hasNext()) {
+      Operation operation = new Operation();
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "op":
+            operation.type = in.nextString();
+            break;
+          case "id":
+            operation.id = in.nextLong();
+            break;
+          case "title":
+            operation.title = in.nextString();
+            break;
+          case "timestamp":
+            operation.timestamp = in.nextLong();
+            break;
+          case "priority":
+            operation.priority = in.nextInt();
+            break;
+          case "dueDate":
+            operation.hasDueDate = true;
+            if (in.peek() == JsonToken.NULL) {
+              in.nextNull();
+            } else {
+              operation.dueDate = in.nextLong();
+            }
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+      operation.validate();
+      operations.add(operation);
+    }
+    in.endArray();
+    return operations;
+  }
+
+  private static void writeResults(JsonWriter out, List<Operation> operations) throws IOException {
+    out.beginObject();
+    out.name("results").beginArray();
+    for (Operation operation : operations) {
+      out.beginObject();
+      out.name("status").value(operation.status);
+      if (operation.id != null) {
+        out.name("id").value(operation.id);
+      }
+      if (operation.error != null) {
+        out.name("error").value(operation.error);
+      }
+      out.endObject();
+    }
+    out.endArray();
+    out.endObject();
+    out.flush();
+  }
+
+  private static void fail(List<Operation> operations, RuntimeException e) {
+    for (Operation operation : operations) {
+      operation.status = "error";
+      operation.error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+  }
+
+  /** Splits the list into consecutive sublists of at most {@code size} elements. */
+  private static <T> List<List<T>> chunks(List<T> list, int size) {
+    List<List<T>> chunks = new ArrayList<>();
+    for (int start = 0; start < list.size(); start += size) {
+      chunks.add(list.subList(start, Math.min(list.size(), start + size)));
+    }
+    return chunks;
+  }
+
+  /** An operation of the batch and, once it was applied, its result. */
+  private static class Operation {
+    private String type;
+    private Long id;
+    private String title;
+    private Long timestamp;
+    private Integer priority;
+    private Long dueDate;
+    // Whether the due date was given, since null removes it.
+    private boolean hasDueDate;
+    private Entity entity;
+    private String status;
+    private String error;
+
+    /** Marks the operation as failed if it is missing what its type requires. */
+    private void validate() {
+      if (type == null || !(type.equals("create") || type.equals("update") || type.equals("delete"))) {
+        error = "op must be create, update or delete";
+      } else if (!type.equals("create") && id == null) {
+        error = "id is required to " + type + " a task";
+      } else if (type.equals("create") && title == null) {
+        error = "title is required to " + type + " a task";
+      }
+      if (error != null) {
+        status = "error";
+      }
+    }
+
+    private Key key() {
+      return KeyFactory.createKey("Task", id);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.datastore.Cursor;
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.QueryResultList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet deleting the tasks marked as deleted, together with their tombstones, a batch at a time.
+ * It is run by the cron job in cron.xml.
+ */
+@WebServlet("/tasks/compact")
+public class CompactTasksServlet extends HttpServlet {
+
+  // Each batch deletes a task and its tombstone per tombstone, up to the 500 keys a delete accepts.
+  private static final int BATCH_SIZE = 250;
+  // Stop starting new batches after this long, well within the request deadline. The next run continues.
+  private static final long TIME_BUDGET_MILLIS = 60_000;
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    // App Engine removes this header from outside requests, so only the cron job can run the compaction.
+    if (!"true".equals(request.getHeader("X-Appengine-Cron"))) {
+      response.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return;
+    }
+
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    Query query = new Query(Tasks.TOMBSTONE_KIND).setKeysOnly();
+    long deadline = System.currentTimeMillis() + TIME_BUDGET_MILLIS;
+    int compacted = 0;
+    Cursor cursor = null;
+    // Page through the tombstones with a cursor, so tombstones deleted by an earlier batch are never read again.
+    while (System.currentTimeMillis() < deadline) {
+      FetchOptions fetchOptions = FetchOptions.Builder.withLimit(BATCH_SIZE);
+      if (cursor != null) {
+        fetchOptions.startCursor(cursor);
+      }
+      QueryResultList<Entity> tombstones = datastore.prepare(query).asQueryResultList(fetchOptions);
+      if (tombstones.isEmpty()) {
+        break;
+      }
+      List<Key> keys = new ArrayList<>(tombstones.size() * 2);
+      for (Entity tombstone : tombstones) {
+        keys.add(KeyFactory.createKey("Task", tombstone.getKey().getId()));
+        keys.add(tombstone.getKey());
+      }
+      datastore.delete(keys);
+      compacted += tombstones.size();
+      if (tombstones.size() < BATCH_SIZE) {
+        break;
+      }
+      cursor = tombstones.getCursor();
+    }
+
+    response.setContentType("text/plain;");
+    response.getWriter().println("Compacted " + compacted + " deleted tasks.");
+  }
+}
@@ -16,24 +16,42 @@ package com.google.sps.servlets;
 
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.appengine.api.datastore.Entity;
 import com.google.appengine.api.datastore.Key;
-import com.google.appengine.api.datastore.KeyFactory;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Servlet responsible for deleting tasks. */
+/**
+ * Servlet responsible for deleting tasks. The task is only marked as deleted with a tombstone, and removed from
+ * the datastore later by {@code CompactTasksServlet}. Responds with 404 if there is no task with the id, or it
+ * was deleted already.
+ */
 @WebServlet("/delete-task")
 public class DeleteTaskServlet extends HttpServlet {
 
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    long id = Long.parseLong(request.getParameter("id"));
+    long id;
+    try {
+      id = Long.parseLong(request.getParameter("id"));
+    } catch (NumberFormatException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "id must be a number");
+      return;
+    }
 
-    Key taskEntityKey = KeyFactory.createKey("Task", id);
     DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-    datastore.delete(taskEntityKey);
+    // Read the task and its tombstone in one call, since a deleted task can't be deleted again.
+    Map<Key, Entity> entities = datastore.get(Arrays.asList(Tasks.taskKey(id), Tasks.tombstoneKey(id)));
+    if (!entities.containsKey(Tasks.taskKey(id)) || entities.containsKey(Tasks.tombstoneKey(id))) {
+      response.sendError(HttpServletResponse.SC_NOT_FOUND, "No task with id " + id);
+      return;
+    }
+    datastore.put(Tasks.tombstone(id));
+    Tasks.changed();
   }
 }
\ No newline at end of file
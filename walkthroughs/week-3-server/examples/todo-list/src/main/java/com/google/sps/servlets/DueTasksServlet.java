@@ -0,0 +1,50 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.datastore.DatastoreServiceFactory;
+import com.google.sps.json.Json;
+import java.io.IOException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet returning the next tasks due, the earliest due first and then by priority, highest first. The optional
+ * {@code n} parameter sets how many tasks are returned. The tasks are read from the due date index, leaving out the
+ * deleted ones, and cached by each instance until a task is written through any instance (see {@code Tasks}).
+ */
+@WebServlet("/tasks/due")
+public class DueTasksServlet extends HttpServlet {
+
+  private static final int DEFAULT_COUNT = 10;
+  private static final int MAX_COUNT = 500;
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    int n = DEFAULT_COUNT;
+    String count = request.getParameter("n");
+    if (count != null) {
+      try {
+        n = Math.max(1, Math.min(MAX_COUNT, Integer.parseInt(count)));
+      } catch (NumberFormatException e) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "n must be a number");
+        return;
+      }
+    }
+    Json.write(response, Tasks.nextDue(DatastoreServiceFactory.getDatastoreService(), n));
+  }
+}
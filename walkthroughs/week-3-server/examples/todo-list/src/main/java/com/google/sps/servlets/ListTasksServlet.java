@@ -14,46 +14,121 @@
 
 package com.google.sps.servlets;
 
+import com.google.appengine.api.datastore.Cursor;
 import com.google.appengine.api.datastore.DatastoreService;
 import com.google.appengine.api.datastore.DatastoreServiceFactory;
 import com.google.appengine.api.datastore.Entity;
-import com.google.appengine.api.datastore.PreparedQuery;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.PropertyProjection;
 import com.google.appengine.api.datastore.Query;
 import com.google.appengine.api.datastore.Query.SortDirection;
-import com.google.gson.Gson;
+import com.google.appengine.api.datastore.QueryResultIterator;
+import com.google.gson.stream.JsonWriter;
 import com.google.sps.data.Task;
+import com.google.sps.json.Json;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-/** Servlet responsible for listing tasks. */
+/**
+ * Servlet responsible for listing tasks, newest first, one page at a time. With {@code order=due}, only the tasks
+ * with a due date are listed, the earliest due first and then by priority, highest first.
+ *
+ * <p>Returns {@code {"tasks": [...], "nextCursor": "..."}}, where {@code nextCursor} is only present if there
+ * may be more tasks. Passing it back as the {@code cursor} parameter returns the next page. The optional
+ * {@code limit} parameter sets the page size.
+ */
 @WebServlet("/list-tasks")
 public class ListTasksServlet extends HttpServlet {
 
+  private static final int DEFAULT_PAGE_SIZE = 50;
+  private static final int MAX_PAGE_SIZE = 500;
+
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Query query = new Query("Task").addSort("timestamp", SortDirection.DESCENDING);
+    FetchOptions fetchOptions = FetchOptions.Builder.withLimit(getPageSize(request));
+    String cursor = request.getParameter("cursor");
+    if (cursor != null) {
+      try {
+        fetchOptions.startCursor(Cursor.fromWebSafeString(cursor));
+      } catch (IllegalArgumentException e) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid cursor");
+        return;
+      }
+    }
 
-    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
-    PreparedQuery results = datastore.prepare(query);
+    boolean dueOrder = "due".equals(request.getParameter("order"));
+    Query query;
+    if (dueOrder) {
+      // Served by the composite index in datastore-indexes.xml, which tasks without a due date are not in.
+      query = new Query("Task")
+          .addSort("dueDate", SortDirection.ASCENDING)
+          .addSort("priority", SortDirection.DESCENDING);
+    } else {
+      // Only fetch the properties that are listed. The projection is served by the index in datastore-indexes.xml.
+      query = new Query("Task")
+          .addProjection(new PropertyProjection("title", String.class))
+          .addProjection(new PropertyProjection("timestamp", Long.class))
+          .addSort("timestamp", SortDirection.DESCENDING);
+    }
 
-    List<Task> tasks = new ArrayList<>();
-    for (Entity entity : results.asIterable()) {
-      long id = entity.getKey().getId();
-      String title = (String) entity.getProperty("title");
-      long timestamp = (long) entity.getProperty("timestamp");
+    DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
+    QueryResultIterator<Entity> results = datastore.prepare(query).asQueryResultIterator(fetchOptions);
 
-      Task task = new Task(id, title, timestamp);
-      tasks.add(task);
+    // Read the page, then leave out the deleted tasks with one batch get of their tombstones.
+    List<Entity> entities = new ArrayList<>(fetchOptions.getLimit());
+    List<Long> ids = new ArrayList<>(fetchOptions.getLimit());
+    while (results.hasNext()) {
+      Entity entity = results.next();
+      entities.add(entity);
+      ids.add(entity.getKey().getId());
     }
+    Set<Long> tombstonedIds = ids.isEmpty() ? Collections.emptySet() : Tasks.tombstoned(datastore, ids);
 
-    Gson gson = new Gson();
+    JsonWriter json = Json.newResponseWriter(response);
+    json.beginObject();
+    json.name("tasks").beginArray();
+    for (Entity entity : entities) {
+      if (tombstonedIds.contains(entity.getKey().getId())) {
+        continue;
+      }
+      Task task;
+      if (dueOrder) {
+        task = Tasks.fromEntity(entity);
+      } else {
+        long id = entity.getKey().getId();
+        String title = (String) entity.getProperty("title");
+        long timestamp = (long) entity.getProperty("timestamp");
+        task = new Task(id, title, timestamp);
+      }
 
-    response.setContentType("application/json;");
-    response.getWriter().println(gson.toJson(tasks));
+      Json.GSON.toJson(task, Task.class, json);
+    }
+    json.endArray();
+    // A full page may be followed by more tasks.
+    if (entities.size() == fetchOptions.getLimit()) {
+      json.name("nextCursor").value(results.getCursor().toWebSafeString());
+    }
+    json.endObject();
+    json.flush();
+  }
+
+  /** Returns the requested page size, limited to {@code MAX_PAGE_SIZE}. */
+  private static int getPageSize(HttpServletRequest request) {
+    String limit = request.getParameter("limit");
+    if (limit == null) {
+      return DEFAULT_PAGE_SIZE;
+    }
+    try {
+      return Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(limit)));
+    } catch (NumberFormatException e) {
+      return DEFAULT_PAGE_SIZE;
+    }
   }
 }
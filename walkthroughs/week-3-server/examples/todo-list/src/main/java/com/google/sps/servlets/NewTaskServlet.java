@@ -31,13 +31,25 @@ public class NewTaskServlet extends HttpServlet {
   public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
     String title = request.getParameter("title");
     long timestamp = System.currentTimeMillis();
+    int priority;
+    Long dueDate;
+    try {
+      String priorityParameter = request.getParameter("priority");
+      priority = priorityParameter == null || priorityParameter.isEmpty() ? 0 : Integer.parseInt(priorityParameter);
+      dueDate = Tasks.parseDueDate(request.getParameter("dueDate"));
+    } catch (RuntimeException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid priority or due date");
+      return;
+    }
 
     Entity taskEntity = new Entity("Task");
     taskEntity.setProperty("title", title);
     taskEntity.setProperty("timestamp", timestamp);
+    Tasks.setSchedule(taskEntity, priority, dueDate);
 
     DatastoreService datastore = DatastoreServiceFactory.getDatastoreService();
     datastore.put(taskEntity);
+    Tasks.changed();
 
     response.sendRedirect("/index.html");
   }
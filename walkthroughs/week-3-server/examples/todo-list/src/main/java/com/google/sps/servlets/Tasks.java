@@ -0,0 +1,229 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.servlets;
+
+import com.google.appengine.api.datastore.DatastoreService;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.FetchOptions;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Query;
+import com.google.appengine.api.datastore.Query.SortDirection;
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheService.SetPolicy;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.sps.data.DueTaskQueue;
+import com.google.sps.data.Task;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Converts between {@code Task} entities and tasks, and reads the tasks due next.
+ *
+ * <p>Deleting a task reads it and its tombstone, so a missing or already deleted task is reported as not found,
+ * and then only writes a small {@code TaskTombstone} entity with the same id instead of deleting the task.
+ * Tombstoned tasks are no longer listed, and {@code CompactTasksServlet} deletes them together with their
+ * tombstones in batches.
+ *
+ * <p>The tasks due next are read from the due date index and cached by each instance until a task is written
+ * through any of them, as tracked by a version in memcache.
+ */
+final class Tasks {
+
+  static final String TOMBSTONE_KIND = "TaskTombstone";
+
+  // The memcache key of the version of the tasks.
+  private static final String VERSION_KEY = "task-version";
+  // The most time a cached queue of due tasks is used for, since queries may not see the latest writes yet.
+  private static final long CACHE_MILLIS = 10_000;
+  // The number of tasks the queue of due tasks is loaded with, unless more were asked for.
+  private static final int MIN_CACHED_TASKS = 100;
+
+  private static volatile DueTasks dueTasks;
+
+  private Tasks() {}
+
+  static Task fromEntity(Entity entity) {
+    Object priority = entity.getProperty("priority");
+    return new Task(
+        entity.getKey().getId(),
+        (String) entity.getProperty("title"),
+        (long) entity.getProperty("timestamp"),
+        priority == null ? 0 : (int) (long) priority,
+        (Long) entity.getProperty("dueDate"));
+  }
+
+  /**
+   * Sets the priority and the due date of the task entity. A task without a due date has no {@code dueDate}
+   * property, so it is left out of the due date index.
+   */
+  static void setSchedule(Entity entity, int priority, Long dueDate) {
+    entity.setProperty("priority", priority);
+    if (dueDate == null) {
+      entity.removeProperty("dueDate");
+    } else {
+      entity.setProperty("dueDate", dueDate);
+    }
+  }
+
+  static Key taskKey(long id) {
+    return KeyFactory.createKey("Task", id);
+  }
+
+  static Key tombstoneKey(long id) {
+    return KeyFactory.createKey(TOMBSTONE_KIND, id);
+  }
+
+  /** Returns a tombstone marking the task with the id as deleted. */
+  static Entity tombstone(long id) {
+    Entity tombstone = new Entity(tombstoneKey(id));
+    tombstone.setUnindexedProperty("deletedAt", System.currentTimeMillis());
+    return tombstone;
+  }
+
+  /** Returns which of the tasks with the ids were deleted, with a single batch get of their tombstones. */
+  static Set<Long> tombstoned(DatastoreService datastore, Collection<Long> ids) {
+    List<Key> keys = new ArrayList<>(ids.size());
+    for (long id : ids) {
+      keys.add(tombstoneKey(id));
+    }
+    Set<Long> tombstonedIds = new HashSet<>();
+    for (Key key : datastore.get(keys).keySet()) {
+      tombstonedIds.add(key.getId());
+    }
+    return tombstonedIds;
+  }
+
+  /**
+   * Parses a due date given either in milliseconds since the epoch or as an ISO date, which is due at the
+   * start of that day in UTC. Returns null if there is no due date.
+   */
+  static Long parseDueDate(String dueDate) {
+    if (dueDate == null || dueDate.isEmpty()) {
+      return null;
+    }
+    if (dueDate.chars().allMatch(Character::isDigit)) {
+      return Long.parseLong(dueDate);
+    }
+    return LocalDate.parse(dueDate).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+  }
+
+  /**
+   * Returns up to {@code n} tasks that are due next. They are read from the due date index with a query, leaving
+   * out the tombstoned ones, into a queue cached by this instance. The cache is used until a task is written
+   * through any instance, which changes the version in memcache, or until it is {@link #CACHE_MILLIS} old, since
+   * the index may lag behind the writes. Concurrent requests may load the queue at the same time, instead of
+   * waiting for one another.
+   */
+  static List<Task> nextDue(DatastoreService datastore, int n) {
+    Long version = version();
+    DueTasks cached = dueTasks;
+    if (cached != null && version != null && cached.version == version
+        && System.currentTimeMillis() - cached.loadedAt < CACHE_MILLIS && (cached.complete || n <= cached.size)) {
+      return cached.queue.next(n);
+    }
+    long loadedAt = System.currentTimeMillis();
+    int limit = Math.max(n, MIN_CACHED_TASKS);
+    List<Task> due = queryDue(datastore, limit);
+    DueTaskQueue queue = new DueTaskQueue();
+    for (Task task : due) {
+      queue.add(task);
+    }
+    if (version != null) {
+      dueTasks = new DueTasks(version, loadedAt, queue, due.size(), due.size() < limit);
+    }
+    return queue.next(n);
+  }
+
+  /** Returns up to {@code limit} tasks with a due date that are not tombstoned, in the order they are due. */
+  private static List<Task> queryDue(DatastoreService datastore, int limit) {
+    // Tasks without a due date are not in the index, so only the ones with a due date are read.
+    Query query = new Query("Task")
+        .addSort("dueDate", SortDirection.ASCENDING)
+        .addSort("priority", SortDirection.DESCENDING);
+    List<Task> due = new ArrayList<>(limit);
+    List<Task> chunk = new ArrayList<>();
+    for (Entity entity : datastore.prepare(query).asIterable(FetchOptions.Builder.withChunkSize(limit))) {
+      chunk.add(fromEntity(entity));
+      if (chunk.size() == limit - due.size()) {
+        addNotTombstoned(datastore, chunk, due);
+        chunk.clear();
+        if (due.size() == limit) {
+          break;
+        }
+      }
+    }
+    addNotTombstoned(datastore, chunk, due);
+    return due;
+  }
+
+  private static void addNotTombstoned(DatastoreService datastore, List<Task> tasks, List<Task> due) {
+    if (tasks.isEmpty()) {
+      return;
+    }
+    List<Long> ids = new ArrayList<>(tasks.size());
+    for (Task task : tasks) {
+      ids.add(task.getId());
+    }
+    Set<Long> tombstonedIds = tombstoned(datastore, ids);
+    for (Task task : tasks) {
+      if (!tombstonedIds.contains(task.getId())) {
+        due.add(task);
+      }
+    }
+  }
+
+  /**
+   * Returns the version of the tasks, which changes whenever a task is written, or null if memcache is not
+   * available. It starts from the current time, so it keeps increasing when memcache evicts it.
+   */
+  private static Long version() {
+    MemcacheService memcache = MemcacheServiceFactory.getMemcacheService();
+    Object version = memcache.get(VERSION_KEY);
+    if (version == null) {
+      memcache.put(VERSION_KEY, System.currentTimeMillis(), null, SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+      version = memcache.get(VERSION_KEY);
+    }
+    return (Long) version;
+  }
+
+  /** Records that tasks were written or deleted, so every instance reads the due tasks again. */
+  static void changed() {
+    MemcacheServiceFactory.getMemcacheService().increment(VERSION_KEY, 1, System.currentTimeMillis());
+  }
+
+  /** The tasks due next as read by this instance, and the version of the tasks they were read at. */
+  private static final class DueTasks {
+    private final long version;
+    private final long loadedAt;
+    private final DueTaskQueue queue;
+    private final int size;
+    // Whether the queue holds every task with a due date, and not only the first ones.
+    private final boolean complete;
+
+    DueTasks(long version, long loadedAt, DueTaskQueue queue, int size, boolean complete) {
+      this.version = version;
+      this.loadedAt = loadedAt;
+      this.queue = queue;
+      this.size = size;
+      this.complete = complete;
+    }
+  }
+}
@@ -12,13 +12,35 @@
 // See the License for the specific language governing permissions and
 // limitations under the License.
 
-/** Fetches tasks from the server and adds them to the DOM. */
-function loadTasks() {
-  fetch('/list-tasks').then(response => response.json()).then((tasks) => {
+/**
+ * Fetches a page of tasks from the server and adds them to the DOM. Passing the cursor returned with a page
+ * fetches the page after it.
+ */
+function loadTasks(cursor) {
+  const params = new URLSearchParams();
+  if (cursor) {
+    params.append('cursor', cursor);
+  }
+  fetch('/list-tasks?' + params).then(response => response.json()).then((page) => {
     const taskListElement = document.getElementById('task-list');
-    tasks.forEach((task) => {
+    page.tasks.forEach((task) => {
       taskListElement.appendChild(createTaskElement(task));
-    })
+    });
+
+    // Offer to load the next page if there may be more tasks.
+    const loadMoreElement = document.getElementById('load-more');
+    loadMoreElement.style.display = page.nextCursor ? 'inline' : 'none';
+    loadMoreElement.onclick = () => loadTasks(page.nextCursor);
+  });
+}
+
+/** Fetches the next tasks due from the server and adds them to the DOM. */
+function loadDueTasks() {
+  fetch('/tasks/due?n=5').then(response => response.json()).then((tasks) => {
+    const dueTaskListElement = document.getElementById('due-task-list');
+    tasks.forEach((task) => {
+      dueTaskListElement.appendChild(createTaskElement(task));
+    });
   });
 }
 
@@ -29,6 +51,10 @@ function createTaskElement(task) {
 
   const titleElement = document.createElement('span');
   titleElement.innerText = task.title;
+  if (task.dueDate) {
+    titleElement.innerText +=
+        ' (due ' + new Date(task.dueDate).toISOString().substring(0, 10) + ')';
+  }
 
   const deleteButtonElement = document.createElement('button');
   deleteButtonElement.innerText = 'Delete';
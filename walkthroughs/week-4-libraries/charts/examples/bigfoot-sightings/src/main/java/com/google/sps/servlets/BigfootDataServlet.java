@@ -14,7 +14,7 @@
 
 package com.google.sps.servlets;
 
-import com.google.gson.Gson;
+import com.google.sps.json.Json;
 import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Scanner;
@@ -47,9 +47,6 @@ public class BigfootDataServlet extends HttpServlet {
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    response.setContentType("application/json");
-    Gson gson = new Gson();
-    String json = gson.toJson(bigfootSightings);
-    response.getWriter().println(json);
+    Json.write(response, bigfootSightings);
   }
 }
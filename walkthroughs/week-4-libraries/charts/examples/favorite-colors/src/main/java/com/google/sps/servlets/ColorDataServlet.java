@@ -14,7 +14,7 @@
 
 package com.google.sps.servlets;
 
-import com.google.gson.Gson;
+import com.google.sps.json.Json;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
@@ -32,10 +32,7 @@ public class ColorDataServlet extends HttpServlet {
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    response.setContentType("application/json");
-    Gson gson = new Gson();
-    String json = gson.toJson(colorVotes);
-    response.getWriter().println(json);
+    Json.write(response, colorVotes);
   }
 
   @Override
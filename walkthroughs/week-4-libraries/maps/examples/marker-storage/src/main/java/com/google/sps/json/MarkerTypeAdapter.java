@@ -0,0 +1,61 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.data.Marker;
+import java.io.IOException;
+
+/** Converts a {@code Marker} to and from JSON, with the same fields as reflection would use. */
+final class MarkerTypeAdapter extends TypeAdapter<Marker> {
+
+  @Override
+  public void write(JsonWriter out, Marker marker) throws IOException {
+    out.beginObject();
+    out.name("lat").value(marker.getLat());
+    out.name("lng").value(marker.getLng());
+    out.name("content").value(marker.getContent());
+    out.endObject();
+  }
+
+  @Override
+  public Marker read(JsonReader in) throws IOException {
+    double lat = 0;
+    double lng = 0;
+    String content = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "lat":
+          lat = in.nextDouble();
+          break;
+        case "lng":
+          lng = in.nextDouble();
+          break;
+        case "content":
+          content = in.nextString();
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new Marker(lat, lng, content);
+  }
+}
@@ -20,7 +20,7 @@ import com.google.appengine.api.datastore.Entity;
 import com.google.appengine.api.datastore.PreparedQuery;
 import com.google.appengine.api.datastore.Query;
 import com.google.sps.data.Marker;
-import com.google.gson.Gson;
+import com.google.sps.json.Json;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -38,13 +38,8 @@ public class MarkerServlet extends HttpServlet {
   /** Responds with a JSON array containing marker data. */
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    response.setContentType("application/json");
-
     Collection<Marker> markers = getMarkers();
-    Gson gson = new Gson();
-    String json = gson.toJson(markers);
-
-    response.getWriter().println(json);
+    Json.write(response, markers);
   }
 
   /** Accepts a POST request containing a new marker. */
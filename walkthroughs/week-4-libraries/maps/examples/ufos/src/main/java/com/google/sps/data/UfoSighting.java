@@ -23,4 +23,12 @@ public class UfoSighting {
     this.lat = lat;
     this.lng = lng;
   }
+
+  public double getLat() {
+    return lat;
+  }
+
+  public double getLng() {
+    return lng;
+  }
 }
@@ -0,0 +1,56 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.sps.data.UfoSighting;
+import java.io.IOException;
+
+/** Converts a {@code UfoSighting} to and from JSON, with the same fields as reflection would use. */
+final class UfoSightingTypeAdapter extends TypeAdapter<UfoSighting> {
+
+  @Override
+  public void write(JsonWriter out, UfoSighting ufoSighting) throws IOException {
+    out.beginObject();
+    out.name("lat").value(ufoSighting.getLat());
+    out.name("lng").value(ufoSighting.getLng());
+    out.endObject();
+  }
+
+  @Override
+  public UfoSighting read(JsonReader in) throws IOException {
+    double lat = 0;
+    double lng = 0;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "lat":
+          lat = in.nextDouble();
+          break;
+        case "lng":
+          lng = in.nextDouble();
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new UfoSighting(lat, lng);
+  }
+}
@@ -15,7 +15,7 @@
 package com.google.sps.servlets;
 
 import com.google.sps.data.UfoSighting;
-import com.google.gson.Gson;
+import com.google.sps.json.Json;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -50,9 +50,6 @@ public class UfoDataServlet extends HttpServlet {
 
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    response.setContentType("application/json");
-    Gson gson = new Gson();
-    String json = gson.toJson(ufoSightings);
-    response.getWriter().println(json);
+    Json.write(response, ufoSightings);
   }
 }
@@ -15,7 +15,7 @@
 package com.google.sps.servlets;
 
 import com.google.sps.Events;
-import com.google.gson.Gson;
+import com.google.sps.json.Json;
 import java.io.IOException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -26,11 +26,7 @@ import javax.servlet.http.HttpServletResponse;
 public class GetEventsServlet extends HttpServlet {
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
-    Gson gson = new Gson();
-    String jsonResponse = gson.toJson(Events.events);
-
-    // Send the JSON back as the response
-    response.setContentType("application/json");
-    response.getWriter().println(jsonResponse);
+    // Send the events back as the JSON response
+    Json.write(response, Events.events);
   }
 }
@@ -0,0 +1,63 @@
+// Copyright 2019 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.sps.json;
+
+import com.google.gson.reflect.TypeToken;
+import com.google.sps.TimeRange;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** */
+@RunWith(JUnit4.class)
+public final class TimeRangeTypeAdapterTest {
+  @Test
+  public void writesTheSameFieldsAsReflection() {
+    String actual = Json.GSON.toJson(TimeRange.fromStartDuration(480, 30));
+
+    Assert.assertEquals("{\"start\":480,\"duration\":30}", actual);
+  }
+
+  @Test
+  public void roundTrip() {
+    TimeRange expected = TimeRange.fromStartEnd(TimeRange.START_OF_DAY, TimeRange.END_OF_DAY, true);
+
+    TimeRange actual = Json.GSON.fromJson(Json.GSON.toJson(expected), TimeRange.class);
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void roundTripList() {
+    List<TimeRange> expected =
+        Arrays.asList(TimeRange.fromStartDuration(0, 60), null, TimeRange.fromStartDuration(900, 0));
+
+    List<TimeRange> actual = Json.GSON.fromJson(
+        Json.GSON.toJson(expected), new TypeToken<List<TimeRange>>() {}.getType());
+
+    Assert.assertEquals(expected, actual);
+  }
+
+  @Test
+  public void readIgnoresUnknownFields() {
+    TimeRange actual =
+        Json.GSON.fromJson("{\"end\":90,\"start\":60,\"label\":{\"a\":[1]},\"duration\":30}", TimeRange.class);
+
+    Assert.assertEquals(TimeRange.fromStartDuration(60, 30), actual);
+  }
+}